@@ -0,0 +1,92 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Point;
+import net.scriptgate.engine.Engine;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static net.scriptgate.common.Color3f.WHITE;
+
+/**
+ * Draws a grid of 8x8 tiles over a hidden 1024x1024 window through the sprite batch and as instances,
+ * waiting for the driver to finish every frame. Needs a display, to measure under Mesa llvmpipe:
+ * <pre>
+ * LIBGL_ALWAYS_SOFTWARE=1 GALLIUM_DRIVER=llvmpipe xvfb-run -s "-screen 0 1024x768x24" gradle jmh -Pbenchmarks=InstancedSprite
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstancedSpriteBenchmark {
+
+    private static final int SIZE = 1024;
+    private static final int TILE = 8;
+
+    @Param({"false", "true"})
+    public boolean instanced;
+
+    private long window;
+    private OpenGLRenderer renderer;
+    private final Point position = new Point(0, 0);
+    private final Point offset = new Point(0, 0);
+    private final Point size = new Point(TILE, TILE);
+
+    @Setup
+    public void setUp() {
+        Engine.WIDTH = SIZE;
+        Engine.HEIGHT = SIZE;
+        if (GLFW.glfwInit() != GL11.GL_TRUE) {
+            throw new IllegalStateException("GLFW could not be initialized");
+        }
+        GLFW.glfwDefaultWindowHints();
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GL11.GL_FALSE);
+        window = GLFW.glfwCreateWindow(SIZE, SIZE, "benchmark", MemoryUtil.NULL, MemoryUtil.NULL);
+        if (window == MemoryUtil.NULL) {
+            GLFW.glfwTerminate();
+            throw new IllegalStateException("No window could be created");
+        }
+        GLFW.glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        GLState.invalidate();
+        GL11.glViewport(0, 0, SIZE, SIZE);
+        OpenGLEngine.setupProjection(SIZE, SIZE);
+        GLState.enable(GL11.GL_BLEND);
+        GLState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+
+        renderer = new OpenGLRenderer();
+        renderer.initialize();
+        renderer.setInstancingEnabled(instanced);
+        if (renderer.isInstancingEnabled() != instanced) {
+            throw new IllegalStateException(String.format("Instancing is not supported by %s", GL11.glGetString(GL11.GL_RENDERER)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        renderer.destroy();
+        GLFW.glfwDestroyWindow(window);
+        GLFW.glfwTerminate();
+    }
+
+    @Benchmark
+    public void drawTileGrid() {
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        renderer.setColor(1, WHITE);
+        for (position.y = 0; position.y < SIZE; position.y += TILE) {
+            for (position.x = 0; position.x < SIZE; position.x += TILE) {
+                renderer.drawImage("images/testTile", position, offset, size);
+            }
+        }
+        renderer.flush();
+        GL11.glFinish();
+    }
+}
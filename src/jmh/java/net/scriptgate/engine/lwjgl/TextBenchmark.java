@@ -0,0 +1,50 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the text paths that run on every {@code drawText} and {@code getBounds} call, with the font baked but no GL context.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextBenchmark {
+
+    @Param({"Score", "Test Method (1/5): Test all characters"})
+    public String text;
+
+    private OpenGLTTFRenderer fontRenderer;
+    private StringBuilder builder;
+    private final Rectangle bounds = new Rectangle(0, 0, 0, 0);
+
+    @Setup
+    public void setUp() throws IOException {
+        fontRenderer = new OpenGLTTFRenderer();
+        fontRenderer.bakeFont();
+        builder = new StringBuilder(text);
+    }
+
+    @TearDown
+    public void tearDown() {
+        fontRenderer.destroy();
+    }
+
+    @Benchmark
+    public Rectangle getBoundsOfCharSequence() {
+        fontRenderer.getBounds(Fonts.DEFAULT, 10, 15, builder, bounds);
+        return bounds;
+    }
+
+    @Benchmark
+    public Rectangle getBounds() {
+        return fontRenderer.getBounds(Fonts.DEFAULT, 10, 15, text);
+    }
+}
@@ -0,0 +1,49 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating circle vertices: cached radii, radii too large to cache, and a tessellator that has not cached anything yet.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CircleTessellatorBenchmark {
+
+    @Param({"4", "64", "500"})
+    public int radius;
+
+    private CircleTessellator tessellator;
+
+    @Setup
+    public void setUp() {
+        tessellator = new CircleTessellator();
+        tessellator.tessellate(radius);
+    }
+
+    @Benchmark
+    public float[] cached() {
+        return tessellator.tessellate(radius);
+    }
+
+    @Benchmark
+    public float[] uncached() {
+//      radii beyond the cache are scaled from the unit circle on every call
+        return tessellator.tessellate(radius + 4096);
+    }
+
+    @Benchmark
+    public float[] cold() {
+        return new CircleTessellator().tessellate(radius);
+    }
+
+    @Benchmark
+    public int getSegments() {
+        return tessellator.getSegments(radius);
+    }
+}
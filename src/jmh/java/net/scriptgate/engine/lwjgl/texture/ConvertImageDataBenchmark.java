@@ -0,0 +1,45 @@
+package net.scriptgate.engine.lwjgl.texture;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures copying a loaded image into a buffer for {@code glTexImage2D}, which happens for every texture on first use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConvertImageDataBenchmark {
+
+//  100 is not a power of two, so the image is padded
+    @Param({"100", "512"})
+    public int size;
+
+    @Param({"true", "false"})
+    public boolean alpha;
+
+    private TextureLoader textureLoader;
+    private BufferedImage image;
+
+    @Setup
+    public void setUp() {
+        textureLoader = new TextureLoader();
+        image = new BufferedImage(size, size, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                image.setRGB(x, y, (x * 255 / size) << 24 | (y * 255 / size) << 8 | x ^ y);
+            }
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer convertImageData() {
+        return textureLoader.convertImageData(image, new Texture(0));
+    }
+}
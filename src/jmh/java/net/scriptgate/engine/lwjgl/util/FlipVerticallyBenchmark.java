@@ -0,0 +1,39 @@
+package net.scriptgate.engine.lwjgl.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures flipping a screenshot read back with {@code glReadPixels}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FlipVerticallyBenchmark {
+
+    @Param({"512", "1920"})
+    public int width;
+
+    @Param({"512", "1080"})
+    public int height;
+
+    private int[] pixels;
+
+    @Setup
+    public void setUp() {
+        pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i;
+        }
+    }
+
+    @Benchmark
+    public int[] flipVertically() {
+        ArrayUtil.flipVertically(pixels, width, height);
+        return pixels;
+    }
+}
@@ -0,0 +1,55 @@
+package net.scriptgate.engine.lwjgl.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading a resource from the classpath and from a file, the two ways fonts and images are loaded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IOUtilBenchmark {
+
+    private static final String RESOURCE = "images/testTile.png";
+
+//  smaller than the resource, so the buffer has to grow while reading from the classpath
+    private static final int BUFFER_SIZE = 1024;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        ByteBuffer resource = IOUtil.ioResourceToByteBuffer(RESOURCE, BUFFER_SIZE);
+        byte[] bytes = new byte[resource.remaining()];
+        resource.get(bytes);
+
+        file = File.createTempFile("ioutil", ".png");
+        file.deleteOnExit();
+        Files.write(file.toPath(), bytes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Benchmark
+    public ByteBuffer fromClasspath() throws IOException {
+        return IOUtil.ioResourceToByteBuffer(RESOURCE, BUFFER_SIZE);
+    }
+
+    @Benchmark
+    public ByteBuffer fromFile() throws IOException {
+        return IOUtil.ioResourceToByteBuffer(file.getPath(), BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,330 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Color4f;
+import net.scriptgate.common.Point;
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.Engine;
+import net.scriptgate.engine.image.ImageLoader;
+import net.scriptgate.engine.lwjgl.batch.CorePrimitiveBatch;
+import net.scriptgate.engine.lwjgl.batch.CoreSpriteBatch;
+import net.scriptgate.engine.lwjgl.batch.VertexBatch;
+import net.scriptgate.engine.lwjgl.geometry.CircleTessellator;
+import net.scriptgate.engine.lwjgl.geometry.TransformStack;
+import net.scriptgate.engine.lwjgl.geometry.Viewport;
+import net.scriptgate.engine.lwjgl.gl.GpuProfiler;
+import net.scriptgate.engine.lwjgl.gl.SpriteShader;
+import net.scriptgate.engine.lwjgl.gl.StreamBuffer;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import net.scriptgate.engine.lwjgl.texture.Texture;
+import net.scriptgate.engine.lwjgl.texture.TextureLoader;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * Renderer for OpenGL 3.3 core profile contexts: everything is drawn from vertex buffers with the {@link SpriteShader},
+ * without the matrix stack or any other fixed-function state. Produces the same pixels as {@link OpenGLRenderer}.
+ * <p>
+ * Sorting, instancing and render layers are only available in {@link OpenGLRenderer};
+ * a {@link RenderLayer} drawn with this renderer draws its content directly.
+ */
+public class CoreProfileRenderer implements GLRenderer {
+
+//  the fixed-function setup translates by 0.375 so vertices at whole coordinates hit pixel centers consistently
+    private static final float PIXEL_OFFSET = 0.375f;
+
+    private final Color4f color;
+    private final ImageLoader<Texture> imageLoader;
+    private final OpenGLTTFRenderer fontRenderer;
+    private final SpriteShader shader;
+    private final CoreSpriteBatch spriteBatch;
+    private final CorePrimitiveBatch primitiveBatch;
+    private final StreamBuffer streamBuffer;
+    private final CircleTessellator circleTessellator;
+    private final TransformStack transform;
+    private final Viewport viewport;
+    private final OpenGLTTFRenderer.GlyphRenderer glyphRenderer = this::drawGlyphs;
+    private int font = Fonts.DEFAULT;
+    private VertexBatch activeBatch;
+    private int vertexArrayId;
+
+    public CoreProfileRenderer() {
+        imageLoader = new TextureLoader();
+        color = new Color4f(1, 1, 1, 1);
+        fontRenderer = new OpenGLTTFRenderer();
+        shader = new SpriteShader();
+        spriteBatch = new CoreSpriteBatch(shader);
+        primitiveBatch = new CorePrimitiveBatch(shader);
+        streamBuffer = new StreamBuffer(1024 * 1024);
+        circleTessellator = new CircleTessellator();
+        transform = new TransformStack();
+        viewport = new Viewport(transform);
+        spriteBatch.setTransform(transform);
+        primitiveBatch.setTransform(transform);
+    }
+
+    @Override
+    public void drawImage(int x, int y, String path) {
+        Texture texture = imageLoader.getTexture(path);
+        int width = texture.getWidth();
+        int height = texture.getHeight();
+
+//      top middle, like OpenGLRenderer
+        int left = x - width / 2;
+        int top = y;
+
+        if (!viewport.isVisible(left, top, left + width, top + height)) {
+            return;
+        }
+        use(spriteBatch).draw(texture.getTextureID(),
+                left, top, left + width, top + height,
+                0, 0, texture.s1(), texture.t1(),
+                color);
+    }
+
+    @Override
+    public void drawImage(String imagePath, Point position, Point offset, Point size) {
+        Texture texture = imageLoader.getTexture(imagePath);
+
+        int left = position.x - texture.getWidth() / 2;
+        int top = position.y;
+        if (!viewport.isVisible(left, top, left + size.x, top + size.y)) {
+            return;
+        }
+
+        float s0 = texture.getPercentageOfWidth(offset.x);
+        float t0 = texture.getPercentageOfHeight(offset.y);
+        float s1 = texture.getPercentageOfWidth(offset.x + size.x);
+        float t1 = texture.getPercentageOfHeight(offset.y + size.y);
+
+        use(spriteBatch).draw(texture.getTextureID(),
+                left, top, left + size.x, top + size.y,
+                s0, t0, s1, t1,
+                color);
+    }
+
+    private void drawGlyphs(int[] textureIds, float[] quads, int glyphCount, int x, int baseline, Rectangle bounds) {
+        if (!viewport.isVisible(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height)) {
+            return;
+        }
+//      one run per page, the batch switches textures between runs
+        for (int first = 0, end; first < glyphCount; first = end) {
+            end = first + 1;
+            while (end < glyphCount && textureIds[end] == textureIds[first]) {
+                end++;
+            }
+            use(spriteBatch).draw(textureIds[first], quads, first, end - first, x, baseline, color);
+        }
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height) {
+        int adjustedWidthToBorder = width - 1;
+        int adjustedHeightToBorder = height - 1;
+
+        if (!viewport.isVisible(x, y, x + adjustedWidthToBorder, y + adjustedHeightToBorder)) {
+            return;
+        }
+        use(primitiveBatch).drawRect(x, y, x + adjustedWidthToBorder, y + adjustedHeightToBorder, color);
+    }
+
+    @Override
+    public Rectangle drawText(int x, int y, String text) {
+        use(spriteBatch);
+        return fontRenderer.render(glyphRenderer, font, x, y, text);
+    }
+
+    @Override
+    public void drawText(int x, int y, CharSequence text, Rectangle bounds) {
+        use(spriteBatch);
+        fontRenderer.render(glyphRenderer, font, x, y, text, bounds);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int radius) {
+        if (!viewport.isVisible(x - radius, y - radius, x + radius, y + radius)) {
+            return;
+        }
+        use(primitiveBatch).fillPolygon(x, y, circleTessellator.tessellate(radius, transform.getMaxScale()), color);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        if (!viewport.isVisible(x1, y1, x2, y2)) {
+            return;
+        }
+        use(primitiveBatch).drawLine(x1, y1, x2, y2, color);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int radius) {
+        if (!viewport.isVisible(x - radius, y - radius, x + radius, y + radius)) {
+            return;
+        }
+        use(primitiveBatch).drawPolygon(x, y, circleTessellator.tessellate(radius, transform.getMaxScale()), color);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        if (!viewport.isVisible(x, y, x + width, y + height)) {
+            return;
+        }
+        use(primitiveBatch).fillRect(x, y, x + width, y + height, color);
+    }
+
+    @Override
+    public Rectangle getBounds(int x, int y, String text) {
+        return fontRenderer.getBounds(font, x, y, text);
+    }
+
+    @Override
+    public void getBounds(int x, int y, CharSequence text, Rectangle bounds) {
+        fontRenderer.getBounds(font, x, y, text, bounds);
+    }
+
+    @Override
+    public Rectangle getBounds(int font, int x, int y, String text) {
+        return fontRenderer.getBounds(font, x, y, text);
+    }
+
+    @Override
+    public void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds) {
+        fontRenderer.getBounds(font, x, y, text, bounds);
+    }
+
+    @Override
+    public void setFont(int font) {
+        if (!Fonts.isRegistered(font)) {
+            throw new IllegalArgumentException("Unknown font: " + font);
+        }
+        this.font = font;
+    }
+
+    @Override
+    public int getFont() {
+        return font;
+    }
+
+    @Override
+    public TextLayoutCache getTextLayoutCache() {
+        return fontRenderer.getLayoutCache();
+    }
+
+    @Override
+    public void setColor(float r, float g, float b) {
+        color.r = r;
+        color.g = g;
+        color.b = b;
+    }
+
+    @Override
+    public void setColor(float a, float r, float g, float b) {
+        color.a = a;
+        color.r = r;
+        color.g = g;
+        color.b = b;
+    }
+
+    @Override
+    public void setOpacity(float a) {
+        color.a = a;
+    }
+
+    @Override
+    public void translate(int x, int y) {
+        transform.translate(x, y);
+    }
+
+    @Override
+    public void pushTransform() {
+        transform.push();
+    }
+
+    @Override
+    public void popTransform() {
+        transform.pop();
+    }
+
+    @Override
+    public void scale(float x, float y) {
+        transform.scale(x, y);
+    }
+
+    @Override
+    public void rotate(float radians) {
+        transform.rotate(radians);
+    }
+
+    private <T extends VertexBatch> T use(T batch) {
+        if (activeBatch != batch) {
+            flush();
+            activeBatch = batch;
+        }
+        return batch;
+    }
+
+    @Override
+    public void flush() {
+        if (activeBatch == null || activeBatch.isEmpty()) {
+            return;
+        }
+        activeBatch.flush();
+    }
+
+    @Override
+    public void endFrame() {
+        streamBuffer.endFrame();
+        fontRenderer.endFrame();
+        font = Fonts.DEFAULT;
+    }
+
+    /**
+     * Measures images and text in a "sprites" scope, everything else in a "primitives" scope.
+     */
+    @Override
+    public void setProfiler(GpuProfiler profiler) {
+        flush();
+        spriteBatch.setProfiler(profiler, profiler.register("sprites"));
+        primitiveBatch.setProfiler(profiler, profiler.register("primitives"));
+    }
+
+    public StreamBuffer getStreamBuffer() {
+        return streamBuffer;
+    }
+
+    @Override
+    public void setProjection(int width, int height) {
+        flush();
+        shader.setViewportSize(width, height);
+    }
+
+    @Override
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    @Override
+    public void initialize() {
+        viewport.setSize(Engine.WIDTH, Engine.HEIGHT);
+//      a core profile cannot draw without a vertex array object, the batches share this one
+        vertexArrayId = GL30.glGenVertexArrays();
+        GL30.glBindVertexArray(vertexArrayId);
+
+        shader.initialize();
+        shader.setViewportSize(Engine.WIDTH, Engine.HEIGHT);
+        shader.setTranslation(PIXEL_OFFSET, PIXEL_OFFSET);
+        streamBuffer.initialize();
+        spriteBatch.initialize(streamBuffer);
+        primitiveBatch.initialize(streamBuffer);
+        fontRenderer.initialize();
+    }
+
+    @Override
+    public void destroy() {
+        spriteBatch.destroy();
+        primitiveBatch.destroy();
+        streamBuffer.destroy();
+        shader.destroy();
+        fontRenderer.destroy();
+        GL30.glBindVertexArray(0);
+        GL30.glDeleteVertexArrays(vertexArrayId);
+    }
+}
@@ -0,0 +1,179 @@
+package net.scriptgate.engine.lwjgl;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Waits at the end of every frame as the {@link FramePacing} requires, and reports how evenly frames were spaced.
+ * <p>
+ * Waiting sleeps until shortly before the frame is due and spins for the rest, since sleeping alone overshoots
+ * by a millisecond or more. The report covers the frames since the last call to {@link #publish()},
+ * which the engine calls once per update.
+ */
+public class FramePacer {
+
+    private static final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+    //how fast the slowest recent frame time decays towards the current one when pacing evenly
+    private static final double PEAK_DECAY = 0.05;
+    //a frame counts as missed when it comes later than this fraction of the target interval
+    private static final double MISSED_FRAME_MARGIN = 1.5;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final FramePacing pacing;
+    private final long targetNanos;
+
+    private long lastFrameEnd;
+    private long deadline;
+    private double peakWorkNanos;
+
+    private int frames;
+    private double intervalSum;
+    private double intervalSquareSum;
+    private int missedFrames;
+
+    private double averageMillis;
+    private double jitterMillis;
+    private int publishedMissedFrames;
+    private int publishedFrames;
+
+    /**
+     * @param targetFramesPerSecond the frame rate to cap at, only used when pacing is {@link FramePacing#CAPPED} or {@link FramePacing#EVEN}
+     */
+    public FramePacer(FramePacing pacing, int targetFramesPerSecond) {
+        if (targetFramesPerSecond <= 0) {
+            throw new IllegalArgumentException("Target frame rate must be positive: " + targetFramesPerSecond);
+        }
+        this.pacing = pacing;
+        this.targetNanos = TimeUnit.SECONDS.toNanos(1) / targetFramesPerSecond;
+    }
+
+    public FramePacing getPacing() {
+        return pacing;
+    }
+
+    /**
+     * @param adaptiveSupported whether the driver supports a negative swap interval, {@code EXT_swap_control_tear}
+     * @return the swap interval to pass to {@code glfwSwapInterval}
+     */
+    public int getSwapInterval(boolean adaptiveSupported) {
+        switch (pacing) {
+            case VSYNC:
+                return 1;
+            case ADAPTIVE_VSYNC:
+                return adaptiveSupported ? -1 : 1;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Called after the buffers are swapped, waits until the next frame is due.
+     *
+     * @param workNanos the time the frame took before swapping, used to pace evenly
+     */
+    public void endFrame(long workNanos) {
+        long now = nanoTime();
+        if (lastFrameEnd != 0) {
+            long interval = getInterval(workNanos);
+            if (interval > 0) {
+//              a frame that is late starts the schedule over instead of making the next frames catch up
+                deadline = Math.max(deadline + interval, now);
+                waitUntil(deadline);
+                now = nanoTime();
+            }
+            record(now - lastFrameEnd);
+        } else {
+            deadline = now;
+        }
+        lastFrameEnd = now;
+    }
+
+    private long getInterval(long workNanos) {
+        switch (pacing) {
+            case CAPPED:
+                return targetNanos;
+            case EVEN:
+                peakWorkNanos = Math.max(workNanos, peakWorkNanos - (peakWorkNanos - workNanos) * PEAK_DECAY);
+                return Math.max(targetNanos, (long) peakWorkNanos);
+            default:
+                return 0;
+        }
+    }
+
+    private void record(long intervalNanos) {
+        double interval = intervalNanos / NANOS_PER_MILLI;
+        frames++;
+        intervalSum += interval;
+        intervalSquareSum += interval * interval;
+        if (intervalNanos > targetNanos * MISSED_FRAME_MARGIN) {
+            missedFrames++;
+        }
+    }
+
+    /**
+     * Makes the frames recorded since the last call available through the getters and starts a new report.
+     */
+    public void publish() {
+        publishedFrames = frames;
+        publishedMissedFrames = missedFrames;
+        if (frames > 0) {
+            averageMillis = intervalSum / frames;
+            jitterMillis = Math.sqrt(Math.max(0, intervalSquareSum / frames - averageMillis * averageMillis));
+        } else {
+            averageMillis = 0;
+            jitterMillis = 0;
+        }
+        frames = 0;
+        intervalSum = 0;
+        intervalSquareSum = 0;
+        missedFrames = 0;
+    }
+
+    public double getTargetMillis() {
+        return targetNanos / NANOS_PER_MILLI;
+    }
+
+    public int getFrames() {
+        return publishedFrames;
+    }
+
+    /**
+     * @return the average time between the ends of two frames, in milliseconds.
+     */
+    public double getAverageMillis() {
+        return averageMillis;
+    }
+
+    /**
+     * @return the standard deviation of the time between the ends of two frames, in milliseconds.
+     */
+    public double getJitterMillis() {
+        return jitterMillis;
+    }
+
+    /**
+     * @return the number of frames that came more than half a target interval late.
+     */
+    public int getMissedFrames() {
+        return publishedMissedFrames;
+    }
+
+    long nanoTime() {
+        return System.nanoTime();
+    }
+
+    void waitUntil(long deadline) {
+        long remaining = deadline - nanoTime();
+        while (remaining > SPIN_NANOS) {
+            try {
+                Thread.sleep(TimeUnit.NANOSECONDS.toMillis(remaining - SPIN_NANOS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - nanoTime();
+        }
+        while (nanoTime() < deadline) {
+            Thread.yield();
+        }
+    }
+}
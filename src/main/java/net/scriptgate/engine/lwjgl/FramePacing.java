@@ -0,0 +1,30 @@
+package net.scriptgate.engine.lwjgl;
+
+/**
+ * How {@link OpenGLEngine} spaces its frames, see {@link FramePacer}.
+ */
+public enum FramePacing {
+
+    /**
+     * Renders as fast as possible without vertical sync, for benchmarks.
+     */
+    UNCAPPED,
+    /**
+     * Renders at most the target frame rate without vertical sync, sleeping and then spinning until the next frame is due.
+     */
+    CAPPED,
+    /**
+     * Waits for vertical sync on every swap.
+     */
+    VSYNC,
+    /**
+     * Waits for vertical sync unless the frame is late, in which case it is shown right away with tearing.
+     * Falls back to {@link #VSYNC} when the driver does not support {@code EXT_swap_control_tear}.
+     */
+    ADAPTIVE_VSYNC,
+    /**
+     * Like {@link #CAPPED}, but when frames take longer than the target the interval follows the slowest recent frames,
+     * so frames are shown at even intervals instead of alternating between fast and slow.
+     */
+    EVEN
+}
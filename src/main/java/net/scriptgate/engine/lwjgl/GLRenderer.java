@@ -0,0 +1,47 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Renderer;
+import net.scriptgate.engine.lwjgl.geometry.Transformable;
+import net.scriptgate.engine.lwjgl.geometry.Viewport;
+import net.scriptgate.engine.lwjgl.gl.GpuProfiler;
+import net.scriptgate.engine.lwjgl.text.FontSelectable;
+import net.scriptgate.engine.lwjgl.text.TextRenderer;
+
+/**
+ * A {@link Renderer} drawing with the current OpenGL context, as driven by {@link OpenGLEngine}.
+ * Applications can cast the renderer they are given to {@link Transformable} to scale and rotate what they draw,
+ * to {@link FontSelectable} to draw text in other fonts and to {@link TextRenderer} to draw text without allocating.
+ */
+public interface GLRenderer extends Renderer, Transformable, FontSelectable, TextRenderer {
+
+    void initialize();
+
+    /**
+     * Called whenever the size of the window changes.
+     */
+    void setProjection(int width, int height);
+
+    Viewport getViewport();
+
+    /**
+     * Draws every queued primitive.
+     */
+    void flush();
+
+    /**
+     * Called after the last primitive of a frame is flushed.
+     */
+    void endFrame();
+
+    /**
+     * Registers scopes with the profiler and measures the draw calls of the renderer in them.
+     */
+    void setProfiler(GpuProfiler profiler);
+
+    /**
+     * @return the layouts of the text drawn and measured with the fonts of the renderer
+     */
+    TextLayoutCache getTextLayoutCache();
+
+    void destroy();
+}
@@ -0,0 +1,399 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.stb.STBTTFontinfo;
+import org.lwjgl.stb.STBTTPackContext;
+import org.lwjgl.stb.STBTTPackedchar;
+import org.lwjgl.stb.STBTruetype;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rasterizes the glyphs of several fonts on first use with {@code stbtt_PackFontRange} into pages of a fixed size,
+ * and keeps their placement in {@link GlyphMetrics}.
+ * <p>
+ * Fonts and sizes share pages, text in different fonts is mostly drawn from the same textures. Fonts can be
+ * oversampled with {@code stbtt_PackSetOversampling}, which rasterizes them at a higher resolution for sharper text
+ * at fractional positions. Their glyphs are not aligned to whole pixels and need linear filtering, they are packed
+ * into pages of their own. The other pages keep nearest filtering: the projection is offset by 0.375 pixels,
+ * linear filtering would blur aligned glyphs. Glyphs are keyed by {@code font << 21 | codePoint}.
+ * <p>
+ * Pages are added as glyphs are needed, up to a maximum. Beyond it the least recently used page is cleared and packed again,
+ * the packer cannot free single glyphs. Pages used since the last {@link #endFrame()} are never evicted,
+ * their glyphs may still be waiting in a batch. When every page is in use, a page is added anyway.
+ * <p>
+ * Glyphs can be packed on any thread, only their pixels are written. {@link #upload()} creates the page textures and
+ * updates the packed rectangles with {@code glTexSubImage2D}, it has to be called on the GL thread before drawing.
+ * Every method locks the atlas, lock it to use the {@link #getMetrics() metrics} of several glyphs consistently.
+ */
+final class GlyphAtlas {
+
+    private static final int PADDING = 1;
+//  control characters have no glyph to draw
+    private static final int FIRST_CODE_POINT = 32;
+//  code points take 21 bits, leaving 10 bits for the font in a positive key
+    private static final int CODE_POINT_BITS = 21;
+    static final int MAX_FONTS = 1 << (31 - CODE_POINT_BITS);
+
+    private final int pageSize;
+    private final int maxPages;
+
+    private final List<Font> fonts = new ArrayList<>();
+    private final STBTTPackedchar.Buffer packedChar;
+    private final GlyphMetrics metrics = new GlyphMetrics();
+    private final List<Page> pages = new ArrayList<>();
+
+    private boolean initialized;
+    private boolean swizzle;
+    private long frame;
+    private long generation;
+    private long evictions;
+
+    GlyphAtlas(int pageSize, int maxPages) {
+        if (pageSize <= 0 || maxPages <= 0) {
+            throw new IllegalArgumentException(String.format("Page size and maximum number of pages must be positive: %d, %d", pageSize, maxPages));
+        }
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+        packedChar = STBTTPackedchar.mallocBuffer(1);
+    }
+
+    /**
+     * @param ttf         the font file, which has to stay alive as long as the atlas, several sizes can share it
+     * @param oversampleX the horizontal oversampling, 1 rasterizes the glyphs at the screen resolution
+     * @return the font to get glyphs of, numbered in the order fonts are added
+     */
+    synchronized int addFont(ByteBuffer ttf, float height, int oversampleX, int oversampleY) {
+        if (fonts.size() == MAX_FONTS) {
+            throw new IllegalStateException(String.format("An atlas holds at most %d fonts", MAX_FONTS));
+        }
+        if (oversampleX < 1 || oversampleY < 1) {
+            throw new IllegalArgumentException(String.format("Oversampling must be positive: %d, %d", oversampleX, oversampleY));
+        }
+        STBTTFontinfo fontInfo = STBTTFontinfo.malloc();
+        if (STBTruetype.stbtt_InitFont(fontInfo, ttf) == 0) {
+            fontInfo.free();
+            throw new IllegalArgumentException("Unable to read the font");
+        }
+        fonts.add(new Font(ttf, fontInfo, height, oversampleX, oversampleY));
+        return fonts.size() - 1;
+    }
+
+    synchronized int getFontCount() {
+        return fonts.size();
+    }
+
+    /**
+     * @return the slot of the glyph in the {@link #getMetrics() metrics}, packing it when it is used for the first time,
+     * or -1 when the font has no glyph for the code point
+     */
+    synchronized int getGlyph(int font, int codePoint) {
+        int key = font << CODE_POINT_BITS | codePoint;
+        int slot = metrics.find(key);
+        if (slot >= 0) {
+            pages.get(metrics.getPage(slot)).lastUsedFrame = frame;
+            return slot;
+        }
+        if (slot == GlyphMetrics.MISSING) {
+            return -1;
+        }
+        Font face = fonts.get(font);
+        if (codePoint < FIRST_CODE_POINT || STBTruetype.stbtt_FindGlyphIndex(face.info, codePoint) == 0) {
+            metrics.addMissing(key);
+            return -1;
+        }
+        return pack(key, face, codePoint);
+    }
+
+    private int pack(int key, Font font, int codePoint) {
+        boolean oversampled = font.isOversampled();
+        for (Page page : pages) {
+            if (page.oversampled == oversampled && page.mayFit(font) && page.pack(font, codePoint)) {
+                return add(key, font, page);
+            }
+        }
+        Page page = pages.size() < maxPages ? addPage() : evictLeastRecentlyUsedPage();
+//      an empty page takes either kind of glyph
+        page.oversampled = oversampled;
+        if (!page.pack(font, codePoint)) {
+//          does not even fit an empty page
+            metrics.addMissing(key);
+            return -1;
+        }
+        return add(key, font, page);
+    }
+
+    private int add(int key, Font font, Page page) {
+        page.lastUsedFrame = frame;
+        float size = pageSize;
+        return metrics.add(key, page.index,
+                packedChar.xoff(), packedChar.yoff(),
+                packedChar.xoff2() - packedChar.xoff(), packedChar.yoff2() - packedChar.yoff(),
+                packedChar.xadvance(),
+                packedChar.x0() / size, packedChar.y0() / size,
+                packedChar.x1() / size, packedChar.y1() / size,
+                !font.isOversampled());
+    }
+
+    private Page addPage() {
+        Page page = new Page(pages.size());
+        pages.add(page);
+        return page;
+    }
+
+    private Page evictLeastRecentlyUsedPage() {
+        Page leastRecentlyUsed = null;
+        for (Page page : pages) {
+            if (page.lastUsedFrame < frame && (leastRecentlyUsed == null || page.lastUsedFrame < leastRecentlyUsed.lastUsedFrame)) {
+                leastRecentlyUsed = page;
+            }
+        }
+        if (leastRecentlyUsed == null) {
+            return addPage();
+        }
+        metrics.removePage(leastRecentlyUsed.index);
+        leastRecentlyUsed.reset();
+        evictions++;
+        generation++;
+        return leastRecentlyUsed;
+    }
+
+    /**
+     * Lets {@link #upload()} create textures, has to be called on the GL thread. Without it, the atlas only measures text.
+     */
+    synchronized void initialize() {
+//      the fixed-function pipeline modulates a red texture like an RGB one and keeps the fragment alpha,
+//      glyphs would be drawn as boxes, so the swizzled texture is only used where alpha textures do not exist
+        swizzle = GLState.isCoreProfile();
+        initialized = true;
+        upload();
+    }
+
+    /**
+     * Creates the textures of new pages and uploads the glyphs packed since the last call.
+     */
+    synchronized void upload() {
+        if (!initialized) {
+            return;
+        }
+//      called for every text drawn, without allocating an iterator
+        for (int page = 0; page < pages.size(); page++) {
+            pages.get(page).upload();
+        }
+    }
+
+    /**
+     * Marks the glyphs used so far as no longer needed by queued draws, their pages can be evicted again.
+     */
+    synchronized void endFrame() {
+        frame++;
+    }
+
+    GlyphMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Keeps the page from being evicted in this frame, its glyphs are about to be drawn.
+     *
+     * @return the texture of the page
+     */
+    synchronized int usePage(int page) {
+        Page used = pages.get(page);
+        used.lastUsedFrame = frame;
+        return used.textureId;
+    }
+
+    /**
+     * @return a number that changes whenever glyphs are evicted, after which earlier slots and pages are no longer valid
+     */
+    synchronized long getGeneration() {
+        return generation;
+    }
+
+    synchronized int getPageCount() {
+        return pages.size();
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized void destroy() {
+        for (Page page : pages) {
+            page.destroy();
+        }
+        pages.clear();
+        for (Font font : fonts) {
+            font.info.free();
+        }
+        fonts.clear();
+        MemoryUtil.memFree(packedChar);
+    }
+
+    private static final class Font {
+
+        private final ByteBuffer ttf;
+        private final STBTTFontinfo info;
+        private final float height;
+        private final int oversampleX;
+        private final int oversampleY;
+
+        Font(ByteBuffer ttf, STBTTFontinfo info, float height, int oversampleX, int oversampleY) {
+            this.ttf = ttf;
+            this.info = info;
+            this.height = height;
+            this.oversampleX = oversampleX;
+            this.oversampleY = oversampleY;
+        }
+
+        boolean isOversampled() {
+            return oversampleX > 1 || oversampleY > 1;
+        }
+
+        /**
+         * @return the height of the glyphs on a page, which holds oversampled glyphs at their oversampled size
+         */
+        float pixelHeight() {
+            return height * oversampleY;
+        }
+    }
+
+    private final class Page {
+
+        private final int index;
+        private final ByteBuffer bitmap;
+        private final STBTTPackContext context;
+
+        private int textureId;
+//      whether the page holds oversampled glyphs, which are filtered linearly
+        private boolean oversampled;
+        private boolean linearTexture;
+        private long lastUsedFrame;
+//      the smallest font height, in page pixels, a glyph did not fit at; glyphs of fonts at least as large skip the page
+        private float failedHeight = Float.MAX_VALUE;
+
+        private int dirtyX0 = Integer.MAX_VALUE;
+        private int dirtyY0 = Integer.MAX_VALUE;
+        private int dirtyX1;
+        private int dirtyY1;
+
+        Page(int index) {
+            this.index = index;
+            bitmap = BufferUtils.createByteBuffer(pageSize * pageSize);
+            context = STBTTPackContext.malloc();
+            STBTruetype.stbtt_PackBegin(context, bitmap, pageSize, pageSize, 0, PADDING);
+        }
+
+        /**
+         * @return false when the glyph does not fit, otherwise its placement is left in {@link #packedChar}
+         */
+        boolean pack(Font font, int codePoint) {
+//          the oversampling is a setting of the pack context, fonts sharing the page each set their own
+            STBTruetype.stbtt_PackSetOversampling(context, font.oversampleX, font.oversampleY);
+            if (STBTruetype.stbtt_PackFontRange(context, font.ttf, 0, font.height, codePoint, 1, packedChar) == 0) {
+                failedHeight = Math.min(failedHeight, font.pixelHeight());
+                return false;
+            }
+//          the padding is uploaded as well, the texture of an evicted page still holds its old glyphs
+            dirtyX0 = Math.min(dirtyX0, Math.max(packedChar.x0() - PADDING, 0));
+            dirtyY0 = Math.min(dirtyY0, Math.max(packedChar.y0() - PADDING, 0));
+            dirtyX1 = Math.max(dirtyX1, Math.min(packedChar.x1() + PADDING, pageSize));
+            dirtyY1 = Math.max(dirtyY1, Math.min(packedChar.y1() + PADDING, pageSize));
+            return true;
+        }
+
+        void reset() {
+            STBTruetype.stbtt_PackEnd(context);
+//          clears the bitmap as well
+            STBTruetype.stbtt_PackBegin(context, bitmap, pageSize, pageSize, 0, PADDING);
+            failedHeight = Float.MAX_VALUE;
+        }
+
+        /**
+         * A page is not given up when a large glyph does not fit, smaller fonts may still fit between its glyphs.
+         */
+        boolean mayFit(Font font) {
+            return font.pixelHeight() < failedHeight;
+        }
+
+        void upload() {
+            if (textureId == 0) {
+                createTexture();
+                return;
+            }
+            if (linearTexture != oversampled) {
+                GLState.bindTexture(textureId);
+                setFilter();
+            }
+            if (dirtyX0 < dirtyX1 && dirtyY0 < dirtyY1) {
+                GLState.bindTexture(textureId);
+                GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+                GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, pageSize);
+                GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_PIXELS, dirtyX0);
+                GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_ROWS, dirtyY0);
+                GL11.glTexSubImage2D(GL11.GL_TEXTURE_2D, 0, dirtyX0, dirtyY0, dirtyX1 - dirtyX0, dirtyY1 - dirtyY0,
+                        swizzle ? GL11.GL_RED : GL11.GL_ALPHA, GL11.GL_UNSIGNED_BYTE, bitmap);
+                GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_ROWS, 0);
+                GL11.glPixelStorei(GL11.GL_UNPACK_SKIP_PIXELS, 0);
+                GL11.glPixelStorei(GL11.GL_UNPACK_ROW_LENGTH, 0);
+                GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+            }
+            clearDirty();
+        }
+
+        private void clearDirty() {
+            dirtyX0 = Integer.MAX_VALUE;
+            dirtyY0 = Integer.MAX_VALUE;
+            dirtyX1 = 0;
+            dirtyY1 = 0;
+        }
+
+        private void createTexture() {
+            textureId = GL11.glGenTextures();
+            GLState.bindTexture(textureId);
+            GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 1);
+            if (swizzle) {
+//              alpha textures do not exist in a core profile, a red texture read as (1, 1, 1, red) looks the same
+                GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL30.GL_R8,
+                        pageSize, pageSize, 0,
+                        GL11.GL_RED, GL11.GL_UNSIGNED_BYTE, bitmap);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL33.GL_TEXTURE_SWIZZLE_R, GL11.GL_ONE);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL33.GL_TEXTURE_SWIZZLE_G, GL11.GL_ONE);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL33.GL_TEXTURE_SWIZZLE_B, GL11.GL_ONE);
+                GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL33.GL_TEXTURE_SWIZZLE_A, GL11.GL_RED);
+            } else {
+                GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_ALPHA,
+                        pageSize, pageSize, 0,
+                        GL11.GL_ALPHA, GL11.GL_UNSIGNED_BYTE, bitmap);
+            }
+            GL11.glPixelStorei(GL11.GL_UNPACK_ALIGNMENT, 4);
+            setFilter();
+//          the whole bitmap is uploaded
+            clearDirty();
+        }
+
+        private void setFilter() {
+            linearTexture = oversampled;
+            int filter = linearTexture ? GL11.GL_LINEAR : GL11.GL_NEAREST;
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, filter);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, filter);
+        }
+
+        void destroy() {
+            STBTruetype.stbtt_PackEnd(context);
+            context.free();
+            if (textureId != 0) {
+                GLState.deleteTexture(textureId);
+                textureId = 0;
+            }
+        }
+    }
+}
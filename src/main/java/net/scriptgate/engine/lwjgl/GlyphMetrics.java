@@ -0,0 +1,236 @@
+package net.scriptgate.engine.lwjgl;
+
+import java.util.Arrays;
+
+/**
+ * The placement of every packed glyph, indexed by slot and found by key, kept in Java arrays.
+ * The key combines the font and the code point, see {@link GlyphAtlas}.
+ * <p>
+ * Quads are computed the way {@code stbtt_GetPackedQuad} computes them, without native calls,
+ * so text can be measured and laid out without touching GL. Glyphs rasterized at the screen resolution are aligned
+ * to whole pixels, oversampled glyphs are placed at their exact position. Slots of evicted pages are reused.
+ * The table is not thread-safe, the {@link GlyphAtlas} owning it guards it.
+ */
+final class GlyphMetrics {
+
+    static final int NOT_FOUND = -1;
+    /**
+     * Returned for keys the font has no glyph for, they are remembered so the font is asked only once.
+     */
+    static final int MISSING = -2;
+
+    private static final int FREE = -1;
+    private static final int NO_KEY = Integer.MIN_VALUE;
+
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+
+    private int[] keysBySlot;
+    private int[] pages;
+    private float[] xOffset;
+    private float[] y0;
+    private float[] width;
+    private float[] height;
+    private float[] advance;
+    private float[] s0;
+    private float[] t0;
+    private float[] s1;
+    private float[] t1;
+    private boolean[] aligned;
+
+//  key to slot, or MISSING, open addressing with linear probing
+    private int[] keys;
+    private int[] values;
+    private int keyCount;
+
+    GlyphMetrics() {
+        this(128);
+    }
+
+    GlyphMetrics(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Glyph capacity must be positive: " + capacity);
+        }
+        keysBySlot = new int[capacity];
+        pages = new int[capacity];
+        xOffset = new float[capacity];
+        y0 = new float[capacity];
+        width = new float[capacity];
+        height = new float[capacity];
+        advance = new float[capacity];
+        s0 = new float[capacity];
+        t0 = new float[capacity];
+        s1 = new float[capacity];
+        t1 = new float[capacity];
+        aligned = new boolean[capacity];
+        keys = new int[Integer.highestOneBit(capacity) * 4];
+        values = new int[keys.length];
+        Arrays.fill(keys, NO_KEY);
+    }
+
+    /**
+     * @return the slot of the glyph, {@link #MISSING} when the font has none or {@link #NOT_FOUND} when it is not packed
+     */
+    int find(int key) {
+        int mask = keys.length - 1;
+        for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+            if (keys[i] == NO_KEY) {
+                return NOT_FOUND;
+            }
+        }
+    }
+
+    void addMissing(int key) {
+        put(key, MISSING);
+    }
+
+    /**
+     * @param xOffset the distance from the pen to the left of the quad, as the other offsets and sizes in pixels
+     * @param s0      the left of the glyph in the page, as the other texture coordinates relative to the page size
+     * @param aligned whether the quad is rounded to whole pixels, only for glyphs that are not oversampled
+     * @return the slot of the glyph
+     */
+    int add(int key, int page, float xOffset, float yOffset, float width, float height, float advance,
+            float s0, float t0, float s1, float t1, boolean aligned) {
+        int slot = freeSlotCount > 0 ? freeSlots[--freeSlotCount] : nextSlot();
+        keysBySlot[slot] = key;
+        pages[slot] = page;
+        this.xOffset[slot] = xOffset;
+//      glyphs are always placed on the baseline, their top can be rounded once
+        this.y0[slot] = aligned ? (float) Math.floor(yOffset + 0.5f) : yOffset;
+        this.width[slot] = width;
+        this.height[slot] = height;
+        this.advance[slot] = advance;
+        this.s0[slot] = s0;
+        this.t0[slot] = t0;
+        this.s1[slot] = s1;
+        this.t1[slot] = t1;
+        this.aligned[slot] = aligned;
+        put(key, slot);
+        return slot;
+    }
+
+    private int nextSlot() {
+        if (slotCount == keysBySlot.length) {
+            int capacity = slotCount * 2;
+            keysBySlot = Arrays.copyOf(keysBySlot, capacity);
+            pages = Arrays.copyOf(pages, capacity);
+            xOffset = Arrays.copyOf(xOffset, capacity);
+            y0 = Arrays.copyOf(y0, capacity);
+            width = Arrays.copyOf(width, capacity);
+            height = Arrays.copyOf(height, capacity);
+            advance = Arrays.copyOf(advance, capacity);
+            s0 = Arrays.copyOf(s0, capacity);
+            t0 = Arrays.copyOf(t0, capacity);
+            s1 = Arrays.copyOf(s1, capacity);
+            t1 = Arrays.copyOf(t1, capacity);
+            aligned = Arrays.copyOf(aligned, capacity);
+        }
+        return slotCount++;
+    }
+
+    /**
+     * Forgets every glyph packed in the page, their slots are reused by the glyphs added next.
+     */
+    void removePage(int page) {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (keysBySlot[slot] != FREE && pages[slot] == page) {
+                keysBySlot[slot] = FREE;
+                if (freeSlotCount == freeSlots.length) {
+                    freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+                }
+                freeSlots[freeSlotCount++] = slot;
+            }
+        }
+        rehash(keys.length);
+    }
+
+    private void put(int key, int value) {
+        if ((keyCount + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int i = hash(key) & mask;
+        while (keys[i] != NO_KEY && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (keys[i] == NO_KEY) {
+            keyCount++;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    /**
+     * Rebuilds the lookup from the glyphs still packed, keeping the keys known to be missing.
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, NO_KEY);
+        keyCount = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_KEY && (oldValues[i] == MISSING || keysBySlot[oldValues[i]] == oldKeys[i])) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(int key) {
+        return key * 0x9E3779B9 >>> 7;
+    }
+
+    int getPage(int slot) {
+        return pages[slot];
+    }
+
+    /**
+     * @param penX the horizontal position of the pen relative to the start of the text, the sum of the preceding advances
+     * @return the left of the glyph quad relative to the start of the text
+     */
+    float getX0(int slot, float penX) {
+        float x0 = penX + xOffset[slot];
+        return aligned[slot] ? (float) Math.floor(x0 + 0.5f) : x0;
+    }
+
+    float getX1(int slot, float penX) {
+        return getX0(slot, penX) + width[slot];
+    }
+
+    /**
+     * @return the top of the glyph quad relative to the baseline, negative above it
+     */
+    float getY0(int slot) {
+        return y0[slot];
+    }
+
+    float getY1(int slot) {
+        return y0[slot] + height[slot];
+    }
+
+    float getAdvance(int slot) {
+        return advance[slot];
+    }
+
+    float getS0(int slot) {
+        return s0[slot];
+    }
+
+    float getT0(int slot) {
+        return t0[slot];
+    }
+
+    float getS1(int slot) {
+        return s1[slot];
+    }
+
+    float getT1(int slot) {
+        return t1[slot];
+    }
+}
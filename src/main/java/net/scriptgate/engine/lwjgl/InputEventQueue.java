@@ -0,0 +1,130 @@
+package net.scriptgate.engine.lwjgl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Input events written by the GLFW callbacks into a preallocated ring buffer of ints and dispatched later,
+ * at a point of the tick chosen by the engine, without allocating anything per event.
+ * <p>
+ * Cursor moves are not queued: only the latest position is kept and dispatched once, after the queued events.
+ * Mouse button events carry the cursor position at the time they happened.
+ * <p>
+ * One thread may write while another dispatches. When the buffer is full, new events are dropped and counted.
+ */
+public class InputEventQueue {
+
+    /**
+     * Receives the dispatched events.
+     */
+    public interface Handler {
+
+        void onKey(int keyCode, int scancode, int action, int mods);
+
+        void onMouseButton(int button, int action, int x, int y);
+
+        void onCursorMoved(int x, int y);
+    }
+
+    private static final int KEY = 0;
+    private static final int MOUSE_BUTTON = 1;
+//  type followed by up to four arguments
+    private static final int INTS_PER_EVENT = 5;
+
+    private final int capacity;
+    private final int[] events;
+//  the number of events ever written and read, only the writer moves head and only the dispatcher moves tail
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    private long droppedEvents;
+
+    private volatile long cursor;
+    private volatile boolean cursorMoved;
+    private int cursorX;
+    private int cursorY;
+
+    public InputEventQueue() {
+        this(256);
+    }
+
+    public InputEventQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Input event queue capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.events = new int[capacity * INTS_PER_EVENT];
+    }
+
+    public void putKey(int keyCode, int scancode, int action, int mods) {
+        put(KEY, keyCode, scancode, action, mods);
+    }
+
+    public void putMouseButton(int button, int action) {
+        put(MOUSE_BUTTON, button, action, cursorX, cursorY);
+    }
+
+    public void moveCursor(int x, int y) {
+        cursorX = x;
+        cursorY = y;
+        cursor = pack(x, y);
+        cursorMoved = true;
+    }
+
+    private void put(int type, int a, int b, int c, int d) {
+        long position = head.get();
+        if (position - tail.get() == capacity) {
+            droppedEvents++;
+            return;
+        }
+        int offset = (int) (position % capacity) * INTS_PER_EVENT;
+        events[offset] = type;
+        events[offset + 1] = a;
+        events[offset + 2] = b;
+        events[offset + 3] = c;
+        events[offset + 4] = d;
+//      publishes the event to the dispatching thread
+        head.lazySet(position + 1);
+    }
+
+    /**
+     * Sends every queued event to the handler in the order they happened, followed by the latest cursor position.
+     */
+    public void dispatch(Handler handler) {
+        long position = tail.get();
+        long end = head.get();
+        while (position < end) {
+            int offset = (int) (position % capacity) * INTS_PER_EVENT;
+            int a = events[offset + 1];
+            int b = events[offset + 2];
+            int c = events[offset + 3];
+            int d = events[offset + 4];
+            position++;
+//          frees the slot before handling, so a handler that throws does not see the event again
+            tail.lazySet(position);
+            if (events[offset] == KEY) {
+                handler.onKey(a, b, c, d);
+            } else {
+                handler.onMouseButton(a, b, c, d);
+            }
+        }
+        if (cursorMoved) {
+            cursorMoved = false;
+            long cursor = this.cursor;
+            handler.onCursorMoved((int) (cursor >> 32), (int) cursor);
+        }
+    }
+
+    private static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    public int size() {
+        return (int) (head.get() - tail.get());
+    }
+
+    /**
+     * @return the number of events that were dropped because the queue was full.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+}
@@ -0,0 +1,38 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Key;
+import org.lwjgl.glfw.GLFW;
+
+/**
+ * Creates every {@link Key} once per key code and modifier combination, resolving its name with {@code glfwGetKeyName} only then.
+ * Unknown keys are only told apart by their scancode and are not cached.
+ */
+class KeyCache {
+
+    private static final int MODIFIER_COMBINATIONS = 4;
+
+    private final Key[] keys = new Key[(GLFW.GLFW_KEY_LAST + 1) * MODIFIER_COMBINATIONS];
+    private final String[] names = new String[GLFW.GLFW_KEY_LAST + 1];
+    private final boolean[] namesResolved = new boolean[GLFW.GLFW_KEY_LAST + 1];
+
+    Key get(int keyCode, int scancode, boolean shiftPressed, boolean ctrlPressed) {
+        if (keyCode < 0 || keyCode > GLFW.GLFW_KEY_LAST) {
+            return Key.from(keyCode, GLFW.glfwGetKeyName(keyCode, scancode), shiftPressed, ctrlPressed);
+        }
+        int index = keyCode * MODIFIER_COMBINATIONS + (shiftPressed ? 1 : 0) + (ctrlPressed ? 2 : 0);
+        Key key = keys[index];
+        if (key == null) {
+            key = Key.from(keyCode, getName(keyCode, scancode), shiftPressed, ctrlPressed);
+            keys[index] = key;
+        }
+        return key;
+    }
+
+    private String getName(int keyCode, int scancode) {
+        if (!namesResolved[keyCode]) {
+            names[keyCode] = GLFW.glfwGetKeyName(keyCode, scancode);
+            namesResolved[keyCode] = true;
+        }
+        return names[keyCode];
+    }
+}
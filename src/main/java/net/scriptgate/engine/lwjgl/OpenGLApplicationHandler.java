@@ -4,8 +4,43 @@ import net.scriptgate.engine.Application;
 import net.scriptgate.engine.ApplicationHandler;
 
 public class OpenGLApplicationHandler implements ApplicationHandler {
+
+    //null leaves the flag as it was set on OpenGLEngine
+    private final Boolean coreProfile;
+    private final Boolean headless;
+
+    /**
+     * Starts the engine as configured through the static fields of {@link OpenGLEngine}.
+     */
+    public OpenGLApplicationHandler() {
+        this.coreProfile = null;
+        this.headless = null;
+    }
+
+    /**
+     * @param coreProfile when true, the application is drawn with a {@link CoreProfileRenderer} in an OpenGL 3.3 core profile context
+     */
+    public OpenGLApplicationHandler(boolean coreProfile) {
+        this.coreProfile = coreProfile;
+        this.headless = null;
+    }
+
+    /**
+     * @param headless when true, the application is drawn offscreen without showing a window, see {@link OpenGLEngine#headless}
+     */
+    public OpenGLApplicationHandler(boolean coreProfile, boolean headless) {
+        this.coreProfile = coreProfile;
+        this.headless = headless;
+    }
+
     @Override
     public void start(Application app) {
+        if (coreProfile != null) {
+            OpenGLEngine.coreProfile = coreProfile;
+        }
+        if (headless != null) {
+            OpenGLEngine.headless = headless;
+        }
         new OpenGLEngine(app, new OpenGLInputComponent()).start();
     }
 }
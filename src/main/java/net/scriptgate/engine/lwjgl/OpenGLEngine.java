@@ -1,6 +1,11 @@
 package net.scriptgate.engine.lwjgl;
 
 import net.scriptgate.engine.*;
+import net.scriptgate.engine.lwjgl.command.CommandBufferRenderer;
+import net.scriptgate.engine.lwjgl.command.FrameSnapshots;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import net.scriptgate.engine.lwjgl.gl.GpuProfiler;
+import net.scriptgate.engine.lwjgl.gl.OffscreenFramebuffer;
 import org.lwjgl.glfw.*;
 import org.lwjgl.opengl.GL;
 import org.lwjgl.opengl.GL11;
@@ -8,6 +13,8 @@ import org.lwjgl.opengl.GLUtil;
 import org.lwjgl.system.MemoryUtil;
 import org.lwjgl.system.libffi.Closure;
 
+import java.io.IOException;
+
 import static java.lang.System.exit;
 import static net.scriptgate.engine.Engine.HEIGHT;
 import static net.scriptgate.engine.Engine.WIDTH;
@@ -17,14 +24,91 @@ import static org.lwjgl.glfw.GLFW.glfwCreateWindow;
 
 public class OpenGLEngine extends EngineBase {
 
+    /**
+     * When set, the application renders into a {@link CommandBufferRenderer} which is replayed on the GL thread.
+     */
+    public static boolean deferredRendering = false;
+    /**
+     * When set, primitives are drawn at the end of the frame sorted by layer and texture, see {@link OpenGLRenderer#setLayer(int)}.
+     */
+    public static boolean sortedRendering = false;
+    /**
+     * When set, images are drawn with {@code glDrawArraysInstanced} if the context supports OpenGL 3.3.
+     */
+    public static boolean instancedRendering = false;
+    /**
+     * When set, an OpenGL 3.3 core profile context is created and drawn to with a {@link CoreProfileRenderer}.
+     * Deferred rendering still works, sorting and instancing are only supported by the {@link OpenGLRenderer}.
+     * Read when the engine is created.
+     */
+    public static boolean coreProfile = false;
+    /**
+     * When set, the window is never shown and frames of {@link Engine#WIDTH} by {@link Engine#HEIGHT} pixels are drawn
+     * into an {@link OffscreenFramebuffer} as fast as possible, without vertical sync.
+     * GLFW still needs an X server on Linux, run under Xvfb on machines without a display.
+     */
+    public static boolean headless = false;
+    /**
+     * When positive, a headless engine stops after rendering this many frames.
+     */
+    public static int headlessFrameLimit = 0;
+    /**
+     * When set, the frame, the application's render pass and the draw calls of the renderer are measured
+     * on the GPU and the CPU, see {@link #getProfiler()}.
+     */
+    public static boolean gpuProfiling = false;
+    /**
+     * How frames are spaced, see {@link FramePacing}. When not set, frames wait for vertical sync
+     * unless {@link Engine#verticalSyncDisabled} is set. A headless engine never waits for vertical sync.
+     */
+    public static FramePacing framePacing = null;
+    /**
+     * The frame rate {@link FramePacing#CAPPED} and {@link FramePacing#EVEN} pacing aim for.
+     */
+    public static int targetFramesPerSecond = 60;
+    /**
+     * When set, the GL context lives on a separate render thread. The application renders into a {@link CommandBufferRenderer}
+     * on the engine thread, next to {@code onTick}, and the render thread draws the latest recorded frame.
+     * The content of a {@link RenderLayer} is recorded on the engine thread too, whenever the layer is dirty,
+     * and the render thread renders the recording into the layer texture. Recording waits while a recorded frame
+     * was not drawn yet, so the engine thread runs at most one frame ahead of the render thread.
+     */
+    public static boolean threadedRendering = false;
+    /**
+     * The estimated memory, in bytes, the renderer may use to keep the layouts of text it drew, see {@link TextLayoutCache}.
+     * 0 lays text out on every call.
+     */
+    public static int textLayoutCacheBytes = 256 * 1024;
+
     protected final Application application;
+    /**
+     * The renderer drawing the frames, null when the engine was created with {@link #coreProfile} set, see {@link #getRenderer()}.
+     */
     protected final OpenGLRenderer renderer;
+    private final GLRenderer glRenderer;
+    private CommandBufferRenderer commandBuffer;
+    private final RenderStatistics statistics = new RenderStatistics();
+    private GpuProfiler profiler;
+    private int frameScope;
+    private int renderScope;
+    private FramePacer framePacer;
+    private int swapInterval;
+    private RenderThread renderThread;
+    private FrameSnapshots snapshots;
+    private OpenGLTTFRenderer textMeasurer;
+    private volatile boolean pacingReportDue;
 
     private long window;
+    private OffscreenFramebuffer offscreenFramebuffer;
+    private int framesRendered;
 
     private final GLFWWindowSizeCallback windowSizeCallback;
     private final GLFWFramebufferSizeCallback framebufferSizeCallback;
 
+    private final InputEventQueue inputEvents = new InputEventQueue();
+    private final InputEventQueue.Handler inputHandler;
+    private final KeyCache keys = new KeyCache();
+
     private final GLFWKeyCallback keyCallback;
 
     private final GLFWMouseButtonCallback mouseButtonCallback;
@@ -37,21 +121,21 @@ public class OpenGLEngine extends EngineBase {
     public OpenGLEngine(Application application, InputComponent input) {
         super(input);
         this.application = application;
-        this.renderer = new OpenGLRenderer();
+        this.glRenderer = coreProfile ? new CoreProfileRenderer() : new OpenGLRenderer();
+        this.renderer = glRenderer instanceof OpenGLRenderer ? (OpenGLRenderer) glRenderer : null;
 
 //      TODO: Is it possible to redirect error callback to log?
         errorCallback = GLFWErrorCallback.createPrint(System.err);
 
-        keyCallback = new GLFWKeyCallback() {
+        inputHandler = new InputEventQueue.Handler() {
             @Override
-            public void invoke(long window, int keyCode, int scancode, int action, int mods) {
-                String keyName = GLFW.glfwGetKeyName(keyCode, scancode);
+            public void onKey(int keyCode, int scancode, int action, int mods) {
                 boolean shiftPressed = (mods & GLFW_MOD_SHIFT) != 0;
                 boolean ctrlPressed = (mods & GLFW.GLFW_MOD_CONTROL) != 0;
                 input.setShiftPressed(shiftPressed);
                 input.setCtrlPressed(ctrlPressed);
 
-                Key key = Key.from(keyCode, keyName, shiftPressed, ctrlPressed);
+                Key key = keys.get(keyCode, scancode, shiftPressed, ctrlPressed);
 
                 switch (action) {
                     case GLFW.GLFW_RELEASE:
@@ -61,8 +145,6 @@ public class OpenGLEngine extends EngineBase {
                         input.keyPressed(key);
                         application.onKeyDown(key);
                         break;
-                    case GLFW.GLFW_REPEAT:
-                        break;
                     default:
                         throw new IllegalArgumentException(String.format("Unsupported key action: 0x%X", action));
                 }
@@ -70,15 +152,15 @@ public class OpenGLEngine extends EngineBase {
                     GLFW.glfwSetWindowShouldClose(window, GL11.GL_TRUE);
                 }
             }
-        };
 
-        mouseButtonCallback = new GLFWMouseButtonCallback() {
             @Override
-            public void invoke(long window, int button, int action, int mods) {
+            public void onMouseButton(int button, int action, int x, int y) {
+//              the click happened where the cursor was at the time, not where it is now
+                input.mouseMoved(x, y);
                 switch (action) {
                     case GLFW.GLFW_RELEASE:
                         input.setMouseReleased();
-                        application.onClick(input.getMouseX(), input.getMouseY());
+                        application.onClick(x, y);
                         break;
                     case GLFW.GLFW_PRESS:
                         input.setMousePressed();
@@ -87,12 +169,34 @@ public class OpenGLEngine extends EngineBase {
                         throw new IllegalArgumentException(String.format("Unsupported mouse button action: 0x%X", action));
                 }
             }
+
+            @Override
+            public void onCursorMoved(int x, int y) {
+                input.mouseMoved(x, y);
+            }
+        };
+
+        keyCallback = new GLFWKeyCallback() {
+            @Override
+            public void invoke(long window, int keyCode, int scancode, int action, int mods) {
+//              repeats were never handled, there is no need to queue them
+                if (action != GLFW.GLFW_REPEAT) {
+                    inputEvents.putKey(keyCode, scancode, action, mods);
+                }
+            }
+        };
+
+        mouseButtonCallback = new GLFWMouseButtonCallback() {
+            @Override
+            public void invoke(long window, int button, int action, int mods) {
+                inputEvents.putMouseButton(button, action);
+            }
         };
 
         cursorPosCallback = new GLFWCursorPosCallback() {
             @Override
             public void invoke(long window, double xpos, double ypos) {
-                input.mouseMoved((int) xpos, (int) ypos);
+                inputEvents.moveCursor((int) xpos, (int) ypos);
             }
         };
 
@@ -103,13 +207,11 @@ public class OpenGLEngine extends EngineBase {
 //              Engine.WIDTH = width;
 //              Engine.HEIGHT = height;
 
-                GL11.glMatrixMode(GL11.GL_PROJECTION);
-                GL11.glLoadIdentity();
-
-                GL11.glOrtho(0.0f, width, height, 0.0f, -1.0f, 1.0f);
-                GL11.glMatrixMode(GL11.GL_MODELVIEW);
-                GL11.glLoadIdentity();
-                GL11.glTranslatef(0.375f, 0.375f, 0.0f);
+                if (renderThread != null) {
+                    renderThread.post(() -> glRenderer.setProjection(width, height));
+                } else {
+                    glRenderer.setProjection(width, height);
+                }
             }
         };
 
@@ -125,19 +227,48 @@ public class OpenGLEngine extends EngineBase {
                 If you wish to be notified when the framebuffer of a window is resized, whether by the user
                 or the system, set a size callback.
 */
-                GL11.glViewport(0, 0, width, height);
+                if (renderThread != null) {
+                    renderThread.post(() -> GL11.glViewport(0, 0, width, height));
+                } else {
+                    GL11.glViewport(0, 0, width, height);
+                }
             }
         };
     }
 
+    static void setupProjection(int width, int height) {
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glLoadIdentity();
+
+        GL11.glOrtho(0.0f, width, height, 0.0f, -1.0f, 1.0f);
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glLoadIdentity();
+        GL11.glTranslatef(0.375f, 0.375f, 0.0f);
+    }
+
+    private static FramePacing getFramePacing() {
+        FramePacing pacing = framePacing;
+        if (pacing == null) {
+            pacing = Engine.verticalSyncDisabled ? FramePacing.UNCAPPED : FramePacing.VSYNC;
+        }
+        if (headless && (pacing == FramePacing.VSYNC || pacing == FramePacing.ADAPTIVE_VSYNC)) {
+            return FramePacing.UNCAPPED;
+        }
+        return pacing;
+    }
+
     @Override
     protected void onTick(InputComponent inputComponent, double elapsedTime) {
         GLFW.glfwPollEvents();
+//      the callbacks only queue events, the application sees them here, before its tick
+        inputEvents.dispatch(inputHandler);
         application.onTick(inputComponent, elapsedTime);
     }
 
     @Override
     protected void onUpdate(int ticks, int frames) {
+//      the pacer belongs to the thread that draws
+        pacingReportDue = true;
         application.onUpdate(ticks, frames);
     }
 
@@ -163,31 +294,59 @@ public class OpenGLEngine extends EngineBase {
 
     @Override
     protected void initialize() {
+        if (coreProfile) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GL11.GL_TRUE);
+        }
         window = glfwCreateWindow(WIDTH, HEIGHT, Engine.TITLE, MemoryUtil.NULL, MemoryUtil.NULL);
 
         if (window == MemoryUtil.NULL) {
             throw new IllegalStateException("Failed to create the GLFW window");
         }
 
-        windowSizeCallback.set(window);
-        framebufferSizeCallback.set(window);
+        if (!headless) {
+            windowSizeCallback.set(window);
+            framebufferSizeCallback.set(window);
+        }
         keyCallback.set(window);
         mouseButtonCallback.set(window);
         cursorPosCallback.set(window);
 
-//      Center window
-        GLFWVidMode vidmode = GLFW.glfwGetVideoMode(GLFW.glfwGetPrimaryMonitor());
-        GLFW.glfwSetWindowPos(window,
-                (vidmode.width() - WIDTH) / 2,
-                (vidmode.height() - HEIGHT) / 2);
+        FramePacing pacing = getFramePacing();
+        int pacedFramesPerSecond = targetFramesPerSecond;
+        if (!headless) {
+//          Center window
+            GLFWVidMode vidmode = GLFW.glfwGetVideoMode(GLFW.glfwGetPrimaryMonitor());
+            GLFW.glfwSetWindowPos(window,
+                    (vidmode.width() - WIDTH) / 2,
+                    (vidmode.height() - HEIGHT) / 2);
+            if ((pacing == FramePacing.VSYNC || pacing == FramePacing.ADAPTIVE_VSYNC) && vidmode.refreshRate() > 0) {
+                pacedFramesPerSecond = vidmode.refreshRate();
+            }
+        }
+        framePacer = new FramePacer(pacing, pacedFramesPerSecond);
 
 
 //      Create context
         GLFW.glfwMakeContextCurrent(window);
         GL.createCapabilities();
+        GLState.invalidate();
+        GLState.setCoreProfile(coreProfile);
         debugCallback = GLUtil.setupDebugMessageCallback();
 
-        GLFW.glfwSwapInterval(Engine.verticalSyncDisabled ? 0 : 1);
+        boolean adaptiveSupported = GLFW.glfwExtensionSupported("WGL_EXT_swap_control_tear") == GL11.GL_TRUE
+                || GLFW.glfwExtensionSupported("GLX_EXT_swap_control_tear") == GL11.GL_TRUE;
+        swapInterval = framePacer.getSwapInterval(adaptiveSupported);
+        GLFW.glfwSwapInterval(swapInterval);
+        if (headless) {
+            if (!GL.getCapabilities().OpenGL30) {
+                throw new IllegalStateException("Headless rendering needs an OpenGL 3.0 context for its offscreen framebuffer");
+            }
+            offscreenFramebuffer = new OffscreenFramebuffer(WIDTH, HEIGHT);
+            offscreenFramebuffer.initialize();
+        }
 
 /*
         https://www.opengl.org/wiki/GLSL_:_common_mistakes#Enable_Or_Not_To_Enable
@@ -203,33 +362,173 @@ public class OpenGLEngine extends EngineBase {
 */
 
 //      2D, in-order-rendering, disable depth test
-        GL11.glDisable(GL11.GL_DEPTH_TEST);
+        GLState.disable(GL11.GL_DEPTH_TEST);
 //      We use transparency, so enable blending
-        GL11.glEnable(GL11.GL_BLEND);
-        GL11.glBlendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        GLState.enable(GL11.GL_BLEND);
+        GLState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
         GL11.glClearColor(Engine.BG_COLOR.r, Engine.BG_COLOR.g, Engine.BG_COLOR.b, 1.0f);
 
-        renderer.initialize();
+        glRenderer.initialize();
+        if (renderer != null) {
+            renderer.setSortingEnabled(sortedRendering);
+            renderer.setInstancingEnabled(instancedRendering);
+        }
+        glRenderer.getTextLayoutCache().setMemoryBudget(textLayoutCacheBytes);
+        if (gpuProfiling) {
+            profiler = new GpuProfiler();
+            profiler.initialize();
+            frameScope = profiler.register("frame");
+            renderScope = profiler.register("render");
+            glRenderer.setProfiler(profiler);
+        }
+        if (deferredRendering) {
+            commandBuffer = new CommandBufferRenderer(glRenderer);
+        }
 
         application.initialize();
+        GLState.resetCounters();
+        statistics.register();
+
+        if (headless) {
+//          the frame size is fixed, the size of the hidden window does not matter
+            glRenderer.setProjection(WIDTH, HEIGHT);
+        } else {
+            GLFW.glfwShowWindow(window);
+            Callbacks.glfwInvoke(window, windowSizeCallback, framebufferSizeCallback);
+        }
 
-        GLFW.glfwShowWindow(window);
-        Callbacks.glfwInvoke(window, windowSizeCallback, framebufferSizeCallback);
+        if (threadedRendering) {
+//          the renderer is busy on the render thread, text is measured with a font of its own
+            textMeasurer = new OpenGLTTFRenderer();
+            try {
+                textMeasurer.bakeFont();
+                textMeasurer.getLayoutCache().setMemoryBudget(textLayoutCacheBytes);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            snapshots = new FrameSnapshots(textMeasurer);
+            renderThread = new RenderThread(window, swapInterval, snapshots, this::drawFrame);
+            renderThread.start();
+        }
     }
 
     @Override
     protected void render() {
+        if (renderThread != null) {
+            CommandBufferRenderer frame = snapshots.beginFrame();
+            application.render(frame);
+            snapshots.publish();
+            textMeasurer.endFrame();
+        } else {
+            drawFrame(null);
+        }
+    }
+
+    /**
+     * Draws and presents a frame, on the thread the context is current on.
+     *
+     * @param snapshot the frame recorded on the engine thread, or null to let the application render it now
+     */
+    private void drawFrame(CommandBufferRenderer snapshot) {
+        long renderStart = System.nanoTime();
+        if (profiler != null) {
+            profiler.begin(frameScope);
+        }
         GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        glRenderer.getViewport().resetCounters();
 
-        application.render(renderer);
+        if (profiler != null) {
+            profiler.begin(renderScope);
+        }
+        if (snapshot != null) {
+            snapshot.replay(glRenderer);
+        } else if (deferredRendering) {
+            commandBuffer.clear();
+            application.render(commandBuffer);
+            commandBuffer.replay(glRenderer);
+        } else {
+            application.render(glRenderer);
+        }
+        glRenderer.flush();
+        if (profiler != null) {
+            profiler.end(renderScope);
+        }
+        glRenderer.endFrame();
+        if (profiler != null) {
+            profiler.end(frameScope);
+            profiler.endFrame();
+        }
+        long renderNanos = System.nanoTime() - renderStart;
+
+        long swapStart = System.nanoTime();
+        if (headless) {
+            GL11.glFlush();
+            framesRendered++;
+            if (headlessFrameLimit > 0 && framesRendered >= headlessFrameLimit) {
+                GLFW.glfwSetWindowShouldClose(window, GL11.GL_TRUE);
+            }
+        } else {
+            GLFW.glfwSwapBuffers(window);
+        }
+        long swapNanos = System.nanoTime() - swapStart;
+        statistics.endFrame(renderNanos, swapNanos);
+        framePacer.endFrame(renderNanos);
+        if (pacingReportDue) {
+            pacingReportDue = false;
+            framePacer.publish();
+        }
+    }
+
+    /**
+     * @return the statistics of the last rendered frame, also available through JMX as {@value RenderStatistics#OBJECT_NAME}
+     */
+    public RenderStatistics getStatistics() {
+        return statistics;
+    }
 
-        GLFW.glfwSwapBuffers(window);
+    /**
+     * @return the profiler measuring the last frames on the GPU, null unless {@link #gpuProfiling} is set
+     */
+    public GpuProfiler getProfiler() {
+        return profiler;
+    }
+
+    /**
+     * @return how well the {@link #framePacing} hit its target during the last update
+     */
+    public FramePacer getFramePacer() {
+        return framePacer;
+    }
+
+    /**
+     * @return the renderer drawing the frames, a {@link CoreProfileRenderer} when {@link #coreProfile} was set
+     */
+    protected GLRenderer getRenderer() {
+        return glRenderer;
+    }
+
+    /**
+     * @return the text layouts kept by the renderer, or when rendering is threaded, those kept to measure text
+     */
+    public TextLayoutCache getTextLayoutCache() {
+        return textMeasurer != null ? textMeasurer.getLayoutCache() : glRenderer.getTextLayoutCache();
     }
 
     @Override
     public void destroy() {
+        if (renderThread != null) {
+            renderThread.stop();
+            textMeasurer.destroy();
+        }
+        statistics.unregister();
         application.destroy();
-        renderer.destroy();
+        glRenderer.destroy();
+        if (profiler != null) {
+            profiler.destroy();
+        }
+        if (offscreenFramebuffer != null) {
+            offscreenFramebuffer.destroy();
+        }
 
         try {
             if (debugCallback != null) {
@@ -3,91 +3,420 @@ package net.scriptgate.engine.lwjgl;
 import net.scriptgate.common.Color4f;
 import net.scriptgate.common.Point;
 import net.scriptgate.common.Rectangle;
-import net.scriptgate.engine.Renderer;
+import net.scriptgate.engine.Engine;
 import net.scriptgate.engine.image.ImageLoader;
+import net.scriptgate.engine.lwjgl.batch.DrawList;
+import net.scriptgate.engine.lwjgl.batch.InstancedSpriteBatch;
+import net.scriptgate.engine.lwjgl.batch.PrimitiveBatch;
+import net.scriptgate.engine.lwjgl.batch.SpriteBatch;
+import net.scriptgate.engine.lwjgl.batch.VertexBatch;
+import net.scriptgate.engine.lwjgl.command.CommandBufferRenderer;
+import net.scriptgate.engine.lwjgl.geometry.CircleTessellator;
+import net.scriptgate.engine.lwjgl.geometry.TransformStack;
+import net.scriptgate.engine.lwjgl.geometry.Viewport;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import net.scriptgate.engine.lwjgl.gl.GpuProfiler;
+import net.scriptgate.engine.lwjgl.gl.StreamBuffer;
+import net.scriptgate.engine.lwjgl.text.Fonts;
 import net.scriptgate.engine.lwjgl.texture.Texture;
 import net.scriptgate.engine.lwjgl.texture.TextureLoader;
+import org.lwjgl.BufferUtils;
 import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
 
-import static java.lang.Math.cos;
-import static java.lang.Math.sin;
+import java.nio.IntBuffer;
+import java.util.function.IntConsumer;
 
-public class OpenGLRenderer implements Renderer {
+public class OpenGLRenderer implements GLRenderer {
 
     private final Color4f color;
-    private static final float DEG2RAD = 3.14159f / 180;
     private final ImageLoader<Texture> imageLoader;
     private static final OpenGLTTFRenderer fontRenderer = new OpenGLTTFRenderer();
+    private final SpriteBatch spriteBatch;
+    private final PrimitiveBatch primitiveBatch;
+    private final InstancedSpriteBatch instancedSpriteBatch;
+    private final StreamBuffer streamBuffer;
+    private boolean instancingEnabled;
+    private VertexBatch activeBatch;
+    private final CircleTessellator circleTessellator;
+    private final Color4f layerColor;
+    private final IntBuffer glViewport;
+    private final TransformStack transform;
+    private final Viewport viewport;
+    private int layerDepth;
+    private final DrawList drawList;
+    private final IntConsumer blendFunction;
+    private boolean sortingEnabled;
+    private boolean premultipliedAlpha;
+    private boolean itemPremultiplied;
+    private int layer;
+    private final OpenGLTTFRenderer.GlyphRenderer glyphRenderer = this::drawGlyphs;
+    private int font = Fonts.DEFAULT;
 
     public OpenGLRenderer() {
         imageLoader = new TextureLoader();
         color = new Color4f(1, 1, 1, 1);
+        spriteBatch = new SpriteBatch();
+        primitiveBatch = new PrimitiveBatch();
+        instancedSpriteBatch = new InstancedSpriteBatch();
+        streamBuffer = new StreamBuffer(1024 * 1024);
+        circleTessellator = new CircleTessellator();
+        layerColor = new Color4f(1, 1, 1, 1);
+        glViewport = BufferUtils.createIntBuffer(16);
+        transform = new TransformStack();
+        viewport = new Viewport(transform);
+        spriteBatch.setTransform(transform);
+        primitiveBatch.setTransform(transform);
+        instancedSpriteBatch.setTransform(transform);
+        drawList = new DrawList();
+        blendFunction = blend -> {
+            premultipliedAlpha = blend == 1;
+            applyBlendFunc();
+        };
     }
 
     @Override
     public void drawImage(int x, int y, String path) {
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
-
         Texture texture = imageLoader.getTexture(path);
         int width = texture.getWidth();
         int height = texture.getHeight();
-        texture.bind();
 
-        GL11.glPushMatrix();
 //      middle center
-//      glTranslatef(x - width / 2, y - height / 2, 0);
+//      int left = x - width / 2;
+//      int top = y - height / 2;
 //      top middle
-        GL11.glTranslatef(x - width / 2, y, 0);
+        int left = x - width / 2;
+        int top = y;
 //      top left
-//      glTranslatef(x, y, 0);
+//      int left = x;
+//      int top = y;
 
-        GL11.glBegin(GL11.GL_QUADS);
-        {
-            drawBoxedTexCoords(
-                    0, 0, width, height,
-                    0, 0, texture.s1(), texture.t1());
+        if (!viewport.isVisible(left, top, left + width, top + height)) {
+            return;
         }
-        GL11.glEnd();
-
-        GL11.glPopMatrix();
-
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
+        drawImage(texture.getTextureID(),
+                left, top, left + width, top + height,
+                0, 0, texture.s1(), texture.t1());
     }
 
     @Override
     public void drawImage(String imagePath, Point position, Point offset, Point size) {
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
-
         Texture texture = imageLoader.getTexture(imagePath);
-        texture.bind();
-
-        GL11.glPushMatrix();
 
         int width = texture.getWidth();
 
 //      int height = texture.getHeight();
 //      middle center
-//      glTranslatef(position.x - width / 2, position.y - height / 2, 0);
+//      int left = position.x - width / 2;
+//      int top = position.y - height / 2;
 //      top left
-//      glTranslatef(position.x, position.y, 0);
-        GL11.glTranslatef(position.x - width / 2, position.y, 0);
-
-        GL11.glBegin(GL11.GL_QUADS);
-        {
-            float s0 = texture.getPercentageOfWidth(offset.x);
-            float t0 = texture.getPercentageOfHeight(offset.y);
-            float s1 = texture.getPercentageOfWidth(offset.x + size.x);
-            float t1 = texture.getPercentageOfHeight(offset.y + size.y);
-
-            drawBoxedTexCoords(
-                    0, 0, size.x, size.y,
-                    s0, t0, s1, t1);
+//      int left = position.x;
+//      int top = position.y;
+        int left = position.x - width / 2;
+        int top = position.y;
+        if (!viewport.isVisible(left, top, left + size.x, top + size.y)) {
+            return;
         }
-        GL11.glEnd();
 
+        float s0 = texture.getPercentageOfWidth(offset.x);
+        float t0 = texture.getPercentageOfHeight(offset.y);
+        float s1 = texture.getPercentageOfWidth(offset.x + size.x);
+        float t1 = texture.getPercentageOfHeight(offset.y + size.y);
+
+        drawImage(texture.getTextureID(),
+                left, top, left + size.x, top + size.y,
+                s0, t0, s1, t1);
+    }
+
+    private void drawImage(int textureId, float x0, float y0, float x1, float y1, float s0, float t0, float s1, float t1) {
+        if (instancingEnabled && instancedSpriteBatch.isInstanced() && transform.isAxisAligned()) {
+            use(instancedSpriteBatch).draw(textureId, x0, y0, x1, y1, s0, t0, s1, t1, color);
+        } else {
+            use(spriteBatch).draw(textureId, x0, y0, x1, y1, s0, t0, s1, t1, color);
+        }
+    }
+
+    /**
+     * Queues the glyphs of a text in the sprite batch, using the current color.
+     */
+    private void drawGlyphs(int[] textureIds, float[] quads, int glyphCount, int x, int baseline, Rectangle bounds) {
+        if (!viewport.isVisible(bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height)) {
+            return;
+        }
+//      every run of glyphs on the same page is a primitive of its own, a page switch must not flush the glyphs before it
+        for (int first = 0, end; first < glyphCount; first = end) {
+            end = first + 1;
+            while (end < glyphCount && textureIds[end] == textureIds[first]) {
+                end++;
+            }
+            use(spriteBatch).draw(textureIds[first], quads, first, end - first, x, baseline, color);
+        }
+    }
+
+    void drawLayer(RenderLayer layer, int x, int y) {
+        if (!viewport.isVisible(x, y, x + layer.getWidth(), y + layer.getHeight())) {
+            return;
+        }
+        if (layer.isDirty()) {
+            renderLayer(layer, null);
+        }
+        drawLayerTexture(layer, x, y);
+    }
+
+    /**
+     * Draws a layer whose content was recorded into a command buffer, rendering the recording when the texture holds another one.
+     */
+    void drawLayer(RenderLayer layer, CommandBufferRenderer recording, int x, int y) {
+        if (!viewport.isVisible(x, y, x + layer.getWidth(), y + layer.getHeight())) {
+            return;
+        }
+        if (!layer.holds(recording)) {
+            renderLayer(layer, recording);
+        }
+        drawLayerTexture(layer, x, y);
+    }
+
+    private void drawLayerTexture(RenderLayer layer, int x, int y) {
+        endBatch();
+//      the layer holds premultiplied colors
+        premultipliedAlpha = true;
+        applyBlendFunc();
+        layerColor.r = color.r * color.a;
+        layerColor.g = color.g * color.a;
+        layerColor.b = color.b * color.a;
+        layerColor.a = color.a;
+//      the first row of the layer texture is the bottom of the layer
+        use(spriteBatch).draw(layer.getTextureId(),
+                x, y, x + layer.getWidth(), y + layer.getHeight(),
+                0, 1, 1, 0,
+                layerColor);
+        endBatch();
+        premultipliedAlpha = false;
+        applyBlendFunc();
+    }
+
+    private void renderLayer(RenderLayer layer, CommandBufferRenderer recording) {
+        endBatch();
+        int previousFramebuffer = GL11.glGetInteger(GL30.GL_FRAMEBUFFER_BINDING);
+        GL11.glGetIntegerv(GL11.GL_VIEWPORT, glViewport);
+
+        layer.bindFramebuffer();
+        GL11.glViewport(0, 0, layer.getWidth(), layer.getHeight());
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+        GL11.glOrtho(0.0f, layer.getWidth(), layer.getHeight(), 0.0f, -1.0f, 1.0f);
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPushMatrix();
+        GL11.glLoadIdentity();
+        GL11.glTranslatef(0.375f, 0.375f, 0.0f);
+
+        GL11.glClearColor(0, 0, 0, 0);
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+        GL11.glClearColor(Engine.BG_COLOR.r, Engine.BG_COLOR.g, Engine.BG_COLOR.b, 1.0f);
+
+        float r = color.r, g = color.g, b = color.b, a = color.a;
+        int width = viewport.getWidth(), height = viewport.getHeight();
+        viewport.setSize(layer.getWidth(), layer.getHeight());
+        transform.push();
+        transform.setIdentity();
+        layerDepth++;
+        applyBlendFunc();
+        if (recording == null) {
+            layer.renderContent(this);
+        } else {
+            layer.renderContent(this, recording);
+        }
+        flush();
+        layerDepth--;
+        applyBlendFunc();
+        setColor(a, r, g, b);
+        viewport.setSize(width, height);
+        transform.pop();
+
+        GL11.glMatrixMode(GL11.GL_PROJECTION);
         GL11.glPopMatrix();
+        GL11.glMatrixMode(GL11.GL_MODELVIEW);
+        GL11.glPopMatrix();
+        GL11.glViewport(glViewport.get(0), glViewport.get(1), glViewport.get(2), glViewport.get(3));
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, previousFramebuffer);
+    }
 
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
+    private void applyBlendFunc() {
+        if (premultipliedAlpha) {
+            GLState.blendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        } else if (layerDepth > 0) {
+//          keep the alpha of the layer so it can be composited with premultiplied colors
+            GLState.blendFuncSeparate(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA, GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        } else {
+            GLState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        }
+    }
+
+    /**
+     * Makes the given batch the one collecting vertices, drawing whatever the previous batch collected
+     * so primitives still end up on screen in the order they were submitted.
+     * When sorting, the previous primitive is moved to the draw list instead.
+     */
+    private <T extends VertexBatch> T use(T batch) {
+        if (isSorting()) {
+            closeItem();
+            activeBatch = batch;
+            itemPremultiplied = premultipliedAlpha;
+        } else if (activeBatch != batch) {
+            flush();
+            activeBatch = batch;
+        }
+        return batch;
+    }
+
+    private boolean isSorting() {
+        return sortingEnabled && layerDepth == 0;
+    }
+
+    private void closeItem() {
+        if (activeBatch == null || activeBatch.isEmpty()) {
+            return;
+        }
+        drawList.add(activeBatch, layer, itemPremultiplied ? 1 : 0);
+        if (drawList.isFull()) {
+            flush();
+        }
+    }
+
+    /**
+     * Ends the primitive being collected before the render target, the layer or the blend function changes.
+     */
+    private void endBatch() {
+        if (isSorting()) {
+            closeItem();
+        } else {
+            flush();
+        }
+    }
+
+    /**
+     * Draws every queued primitive. Has to be called before anything else touches the GL state
+     * and at the end of a frame.
+     */
+    @Override
+    public void flush() {
+        if (isSorting()) {
+            closeItem();
+            submitDrawList();
+            return;
+        }
+        if (activeBatch == null || activeBatch.isEmpty()) {
+            return;
+        }
+        activeBatch.flush();
+    }
+
+    private void submitDrawList() {
+        if (drawList.isEmpty()) {
+            return;
+        }
+        drawList.submit(blendFunction);
+        premultipliedAlpha = false;
+        applyBlendFunc();
+    }
+
+    /**
+     * Has to be called after the last primitive of a frame is flushed.
+     */
+    @Override
+    public void endFrame() {
+        streamBuffer.endFrame();
+        fontRenderer.endFrame();
+        font = Fonts.DEFAULT;
+    }
+
+    /**
+     * @return the buffer every batch streams its vertices into, which keeps track of the bytes streamed per frame.
+     */
+    public StreamBuffer getStreamBuffer() {
+        return streamBuffer;
+    }
+
+    /**
+     * When sorting is enabled, primitives are kept until {@link #flush()} and drawn ordered by layer,
+     * then grouped by texture and primitive type wherever that does not change the result.
+     */
+    public void setSortingEnabled(boolean sortingEnabled) {
+        flush();
+        this.sortingEnabled = sortingEnabled;
+    }
+
+    public boolean isSortingEnabled() {
+        return sortingEnabled;
+    }
+
+    /**
+     * Primitives drawn in a lower layer end up below primitives drawn in a higher layer,
+     * regardless of the order in which they were drawn. Only used when sorting is enabled.
+     *
+     * @param layer between {@link DrawList#MIN_LAYER} and {@link DrawList#MAX_LAYER}, 0 by default
+     */
+    public void setLayer(int layer) {
+        if (layer < DrawList.MIN_LAYER || layer > DrawList.MAX_LAYER) {
+            throw new IllegalArgumentException(String.format("Layer must be between %d and %d: %d", DrawList.MIN_LAYER, DrawList.MAX_LAYER, layer));
+        }
+        endBatch();
+        this.layer = layer;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * @return the number of times the texture, primitive type or blend function changed while drawing the sorted primitives.
+     */
+    public int getSortedStateChanges() {
+        return drawList.getStateChanges();
+    }
+
+    /**
+     * @param batchingEnabled when false, primitives are sent through glBegin/glEnd instead of vertex buffer objects.
+     */
+    public void setBatchingEnabled(boolean batchingEnabled) {
+        flush();
+        spriteBatch.setImmediateMode(!batchingEnabled);
+        primitiveBatch.setImmediateMode(!batchingEnabled);
+        instancedSpriteBatch.setImmediateMode(!batchingEnabled);
+    }
+
+    public boolean isBatchingEnabled() {
+        return !spriteBatch.isImmediateMode();
+    }
+
+    /**
+     * @param instancingEnabled when true, images are drawn as instances of a single quad if the context supports it.
+     *                          Text is always drawn through the sprite batch.
+     */
+    public void setInstancingEnabled(boolean instancingEnabled) {
+        flush();
+        this.instancingEnabled = instancingEnabled;
+    }
+
+    /**
+     * Measures images and text in a "sprites" scope, everything else in a "primitives" scope.
+     */
+    @Override
+    public void setProfiler(GpuProfiler profiler) {
+        flush();
+        int sprites = profiler.register("sprites");
+        int primitives = profiler.register("primitives");
+        spriteBatch.setProfiler(profiler, sprites);
+        instancedSpriteBatch.setProfiler(profiler, sprites);
+        primitiveBatch.setProfiler(profiler, primitives);
+    }
+
+    /**
+     * @return whether images are actually drawn as instances, which is false when the context does not support it.
+     */
+    public boolean isInstancingEnabled() {
+        return instancingEnabled && instancedSpriteBatch.isInstanced();
     }
 
     /**
@@ -115,118 +444,96 @@ public class OpenGLRenderer implements Renderer {
 
     @Override
     public void drawRect(int x, int y, int width, int height) {
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-
         int adjustedWidthToBorder = width - 1;
         int adjustedHeightToBorder = height - 1;
 
-        GL11.glPushMatrix();
-        GL11.glTranslatef(x, y, 0);
-        GL11.glBegin(GL11.GL_LINE_LOOP);
-        {
-            GL11.glVertex2f(0, 0);
-            GL11.glVertex2f(adjustedWidthToBorder, 0);
-            GL11.glVertex2f(adjustedWidthToBorder, adjustedHeightToBorder);
-            GL11.glVertex2f(0, adjustedHeightToBorder);
+        if (!viewport.isVisible(x, y, x + adjustedWidthToBorder, y + adjustedHeightToBorder)) {
+            return;
         }
-        GL11.glEnd();
-        GL11.glPopMatrix();
-
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        use(primitiveBatch).drawRect(x, y, x + adjustedWidthToBorder, y + adjustedHeightToBorder, color);
     }
 
     @Override
     public Rectangle drawText(int x, int y, String text) {
-        return fontRenderer.render(this, x, y, text);
+//      the glyphs are drawn with drawGlyphs
+        use(spriteBatch);
+        return fontRenderer.render(glyphRenderer, font, x, y, text);
     }
 
     @Override
-    public void fillCircle(int x, int y, int radius) {
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-
-        GL11.glPushMatrix();
+    public void drawText(int x, int y, CharSequence text, Rectangle bounds) {
+        use(spriteBatch);
+        fontRenderer.render(glyphRenderer, font, x, y, text, bounds);
+    }
 
-        GL11.glVertex2f(x, y);
-        GL11.glBegin(GL11.GL_TRIANGLE_FAN);
-        {
-            for (int i = 0; i < 360; i++) {
-                float degInRad = i * DEG2RAD;
-                GL11.glVertex2d(
-                        x + radius * cos(degInRad),
-                        y + radius * sin(degInRad));
-            }
+    @Override
+    public void fillCircle(int x, int y, int radius) {
+        if (!viewport.isVisible(x - radius, y - radius, x + radius, y + radius)) {
+            return;
         }
-        GL11.glEnd();
-
-        GL11.glPopMatrix();
-
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        use(primitiveBatch).fillPolygon(x, y, circleTessellator.tessellate(radius, transform.getMaxScale()), color);
     }
 
     @Override
     public void drawLine(int x1, int y1, int x2, int y2) {
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-
-        GL11.glPushMatrix();
-
-        GL11.glBegin(GL11.GL_LINES);
-        {
-            GL11.glVertex2f(x1, y1);
-            GL11.glVertex2f(x2, y2);
+        if (!viewport.isVisible(x1, y1, x2, y2)) {
+            return;
         }
-        GL11.glEnd();
-
-        GL11.glPopMatrix();
-
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+        use(primitiveBatch).drawLine(x1, y1, x2, y2, color);
     }
 
     @Override
     public void drawCircle(int x, int y, int radius) {
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
-
-        GL11.glPushMatrix();
+        if (!viewport.isVisible(x - radius, y - radius, x + radius, y + radius)) {
+            return;
+        }
+        use(primitiveBatch).drawPolygon(x, y, circleTessellator.tessellate(radius, transform.getMaxScale()), color);
+    }
 
-        GL11.glVertex2f(x, y);
-        GL11.glBegin(GL11.GL_LINE_LOOP);
-        {
-            for (int i = 0; i < 360; i++) {
-                float degInRad = i * DEG2RAD;
-                GL11.glVertex2d(
-                        x + radius * cos(degInRad),
-                        y + radius * sin(degInRad));
-            }
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        if (!viewport.isVisible(x, y, x + width, y + height)) {
+            return;
         }
-        GL11.glEnd();
+        use(primitiveBatch).fillRect(x, y, x + width, y + height, color);
+    }
 
-        GL11.glPopMatrix();
+    @Override
+    public Rectangle getBounds(int x, int y, String text) {
+        return fontRenderer.getBounds(font, x, y, text);
+    }
 
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+    @Override
+    public void getBounds(int x, int y, CharSequence text, Rectangle bounds) {
+        fontRenderer.getBounds(font, x, y, text, bounds);
     }
 
     @Override
-    public void fillRect(int x, int y, int width, int height) {
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
+    public Rectangle getBounds(int font, int x, int y, String text) {
+        return fontRenderer.getBounds(font, x, y, text);
+    }
 
-        GL11.glPushMatrix();
+    @Override
+    public void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds) {
+        fontRenderer.getBounds(font, x, y, text, bounds);
+    }
 
-        GL11.glBegin(GL11.GL_QUADS);
-        {
-            GL11.glVertex2f(x, y);
-            GL11.glVertex2f(x + width, y);
-            GL11.glVertex2f(x + width, y + height);
-            GL11.glVertex2f(x, y + height);
+    @Override
+    public void setFont(int font) {
+        if (!Fonts.isRegistered(font)) {
+            throw new IllegalArgumentException("Unknown font: " + font);
         }
-        GL11.glEnd();
-
-        GL11.glPopMatrix();
+        this.font = font;
+    }
 
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+    @Override
+    public int getFont() {
+        return font;
     }
 
     @Override
-    public Rectangle getBounds(int x, int y, String text) {
-        return fontRenderer.getBounds(x, y, text);
+    public TextLayoutCache getTextLayoutCache() {
+        return fontRenderer.getLayoutCache();
     }
 
     /**
@@ -237,7 +544,7 @@ public class OpenGLRenderer implements Renderer {
      * @return The bounds of rendering text at (x,y)
      */
     public static Rectangle _getBounds(int x, int y, String text) {
-        return fontRenderer.getBounds(x,y,text);
+        return fontRenderer.getBounds(Fonts.DEFAULT, x, y, text);
     }
 
     @Override
@@ -245,7 +552,6 @@ public class OpenGLRenderer implements Renderer {
         color.r = r;
         color.g = g;
         color.b = b;
-        GL11.glColor4f(color.r, color.g, color.b, color.a);
     }
 
     @Override
@@ -254,25 +560,68 @@ public class OpenGLRenderer implements Renderer {
         color.r = r;
         color.g = g;
         color.b = b;
-        GL11.glColor4f(color.r, color.g, color.b, color.a);
     }
 
     @Override
     public void setOpacity(float a) {
         color.a = a;
-        GL11.glColor4f(color.r, color.g, color.b, color.a);
     }
 
     @Override
     public void translate(int x, int y) {
-        GL11.glTranslatef(x, y, 0);
+        transform.translate(x, y);
     }
 
+    @Override
+    public void pushTransform() {
+        transform.push();
+    }
+
+    @Override
+    public void popTransform() {
+        transform.pop();
+    }
+
+    @Override
+    public void scale(float x, float y) {
+        transform.scale(x, y);
+    }
+
+    @Override
+    public void rotate(float radians) {
+        transform.rotate(radians);
+    }
+
+    @Override
+    public void setProjection(int width, int height) {
+        flush();
+        OpenGLEngine.setupProjection(width, height);
+    }
+
+    /**
+     * @return the visible area, which also counts how many draw calls were culled.
+     */
+    @Override
+    public Viewport getViewport() {
+        return viewport;
+    }
+
+    @Override
     public void destroy() {
+        spriteBatch.destroy();
+        primitiveBatch.destroy();
+        instancedSpriteBatch.destroy();
+        streamBuffer.destroy();
         fontRenderer.destroy();
     }
 
+    @Override
     public void initialize() {
+        viewport.setSize(Engine.WIDTH, Engine.HEIGHT);
+        streamBuffer.initialize();
+        spriteBatch.initialize(streamBuffer);
+        primitiveBatch.initialize(streamBuffer);
+        instancedSpriteBatch.initialize(streamBuffer);
         fontRenderer.initialize();
     }
 }
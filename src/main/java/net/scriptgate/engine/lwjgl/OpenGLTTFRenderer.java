@@ -1,148 +1,271 @@
 package net.scriptgate.engine.lwjgl;
 
 import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.lwjgl.batch.SpriteBatch;
+import net.scriptgate.engine.lwjgl.command.TextMeasurer;
+import net.scriptgate.engine.lwjgl.text.Fonts;
 import net.scriptgate.engine.lwjgl.util.IOUtil;
-import org.lwjgl.BufferUtils;
-import org.lwjgl.opengl.GL11;
-import org.lwjgl.stb.STBTTAlignedQuad;
-import org.lwjgl.stb.STBTTBakedChar;
-import org.lwjgl.stb.STBTruetype;
-import org.lwjgl.system.MemoryUtil;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 
-class OpenGLTTFRenderer {
+class OpenGLTTFRenderer implements TextMeasurer {
 
-    private static FloatBuffer xBuffer;
-    private static FloatBuffer yBuffer;
-    private STBTTAlignedQuad quad;
+    /**
+     * Draws the glyphs of a laid out text from the font textures.
+     */
+    interface GlyphRenderer {
+        /**
+         * @param textureIds the texture of every glyph
+         * @param quads      the quads of the glyphs relative to the start of the baseline, see {@link TextLayout}
+         * @param bounds     the bounds of the text, to cull it with
+         */
+        void drawGlyphs(int[] textureIds, float[] quads, int glyphCount, int x, int baseline, Rectangle bounds);
+    }
+
+    private static final int PAGE_SIZE = 512;
+    private static final int MAX_PAGES = 4;
 
     //TODO: intialize font height and file through properties
     public static int FONT_HEIGHT = 13;
     public static String FONT_FILE = "fonts/RedAlert.ttf";
-    private STBTTBakedChar.Buffer cdata;
-    private int BITMAP_W;
-    private int BITMAP_H;
+    private GlyphAtlas atlas;
+//  the font files loaded into the atlas, shared by their sizes
+    private final Map<String, ByteBuffer> ttfs = new HashMap<>();
 
-    private int fontTextureId;
+    private final TextLayoutCache layoutCache = new TextLayoutCache();
+    private final TextLayoutCache.Layouter layouter = this::layout;
+    private long layoutGeneration;
+//  the quads and pages of text that is not cached and the textures of the text drawn, only used on the GL thread
+    private float[] quads = new float[64 * SpriteBatch.FLOATS_PER_QUAD];
+    private int[] pages = new int[64];
+    private int[] textureIds = new int[64];
 
     public OpenGLTTFRenderer() {
     }
 
-    private static int[] toASCII(String text) {
-        return text.chars()
-                .filter(c -> c >= 32 && c < 128)
-                .map(c -> c - 32)
-                .toArray();
+    /**
+     * Loads the default font and packs its printable ASCII glyphs, without touching GL, after which
+     * {@link #getBounds(int, int, int, String)} can be used from any thread. Other glyphs are packed when they are first used,
+     * the {@link Fonts registered fonts} are loaded when they are first used.
+     */
+    void bakeFont() throws IOException {
+        if (atlas != null) {
+            atlas.destroy();
+        }
+        ttfs.clear();
+        atlas = new GlyphAtlas(PAGE_SIZE, MAX_PAGES);
+//      TODO: 13 - 0.2f -> 12.8f gives RedAlert.tff a sharper look, artifacts still remain, needs some tuning
+        atlas.addFont(loadFont(FONT_FILE), FONT_HEIGHT - 0.2f, 1, 1);
+        for (char character = ' '; character < 127; character++) {
+            atlas.getGlyph(Fonts.DEFAULT, character);
+        }
+        layoutCache.clear();
+        layoutGeneration = atlas.getGeneration();
     }
 
-    public void initialize() {
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
-        quad = STBTTAlignedQuad.malloc();
-
-        BITMAP_W = 512;
-        BITMAP_H = 512;
-
-
-        cdata = STBTTBakedChar.mallocBuffer(96);
+    private ByteBuffer loadFont(String file) throws IOException {
+//      the atlas reads glyphs from the font whenever it packs one, it has to be kept
+        ByteBuffer ttf = ttfs.get(file);
+        if (ttf == null) {
+            ttf = IOUtil.ioResourceToByteBuffer(file, 160 * 1024);
+            ttfs.put(file, ttf);
+        }
+        return ttf;
+    }
 
+    /**
+     * Adds the registered fonts up to the given one to the atlas, in the order of their handles.
+     */
+    private void loadFonts(int font) {
+        if (!Fonts.isRegistered(font)) {
+            throw new IllegalArgumentException("Unknown font: " + font);
+        }
         try {
-            ByteBuffer ttf = IOUtil.ioResourceToByteBuffer(FONT_FILE, 160 * 1024);
-            ByteBuffer bitmap = BufferUtils.createByteBuffer(BITMAP_W * BITMAP_H);
-//          TODO: 13 - 0.2f -> 12.8f gives RedAlert.tff a sharper look, artifacts still remain, needs some tuning
-            STBTruetype.stbtt_BakeFontBitmap(ttf, FONT_HEIGHT - 0.2f, bitmap, BITMAP_W, BITMAP_H, 32, cdata);
-//          can free ttf at this point
-            fontTextureId = GL11.glGenTextures();
-            GL11.glBindTexture(GL11.GL_TEXTURE_2D, fontTextureId);
-            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_ALPHA,
-                    BITMAP_W, BITMAP_H, 0,
-                    GL11.GL_ALPHA, GL11.GL_UNSIGNED_BYTE, bitmap);
-//          can free bitmap at this point
-
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
-            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+            for (int next = atlas.getFontCount(); next <= font; next++) {
+                atlas.addFont(loadFont(Fonts.getFile(next)), Fonts.getHeight(next), Fonts.getOversampleX(next), Fonts.getOversampleY(next));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
+    public void initialize() {
+        try {
+            bakeFont();
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
+        atlas.initialize();
     }
 
-    public Rectangle render(OpenGLRenderer renderer, int x, int y, String text) {
-        GL11.glEnable(GL11.GL_TEXTURE_2D);
+    public Rectangle render(GlyphRenderer renderer, int font, int x, int y, String text) {
+        Rectangle bounds = new Rectangle(0, 0, 0, 0);
+        render(renderer, font, x, y, text, bounds);
+        return bounds;
+    }
 
-        int maxAboveBaseline = 0;
-        int maxBelowBaseline = 0;
+    /**
+     * Draws the text without allocating once its layout is cached or, for text that is not a {@link String},
+     * once the buffers are large enough. Has to be called on the GL thread.
+     *
+     * @param bounds receives the bounds of the text
+     */
+    public void render(GlyphRenderer renderer, int font, int x, int y, CharSequence text, Rectangle bounds) {
+        //font is rendered from bottom to top, starting above coordinate-Y, offset by 1 pixel
+        int baseline = y + 1;
+        synchronized (atlas) {
+            float[] quads;
+            int[] pages;
+            int glyphCount;
+            if (text instanceof String) {
+                TextLayout layout = getLayout(font, (String) text);
+                layout.getBounds(x, y, bounds);
+                quads = layout.getQuads();
+                pages = layout.getPages();
+                glyphCount = layout.getGlyphCount();
+            } else {
+                glyphCount = layout(font, x, y, text, bounds);
+                quads = this.quads;
+                pages = this.pages;
+            }
+            atlas.upload();
+            if (textureIds.length < glyphCount) {
+                textureIds = new int[glyphCount];
+            }
+//          a cached layout does not look its glyphs up, their pages are marked as used here
+            for (int glyph = 0; glyph < glyphCount; glyph++) {
+                textureIds[glyph] = atlas.usePage(pages[glyph]);
+            }
+            renderer.drawGlyphs(textureIds, quads, glyphCount, x, baseline, bounds);
+        }
+    }
 
-        GL11.glBindTexture(GL11.GL_TEXTURE_2D, fontTextureId);
+    /**
+     * Only reads the glyph metrics and packs missing glyphs, it can be called from any thread once the font is baked.
+     */
+    @Override
+    public Rectangle getBounds(int font, int x, int y, String text) {
+        synchronized (atlas) {
+            return getLayout(font, text).getBounds(x, y);
+        }
+    }
 
-        GL11.glPushMatrix();
-        //font is rendered from bottom to top, starting above coordinate-Y, offset by 1 pixel
-        GL11.glTranslatef(x, y + 1, 0f);
-        GL11.glBegin(GL11.GL_QUADS);
-        {
-            FloatBuffer bX = getXBuffer();
-            FloatBuffer bY = getYBuffer();
-            for (int character : toASCII(text)) {
-                STBTruetype.stbtt_GetBakedQuad(cdata, BITMAP_W, BITMAP_H, character, bX, bY, quad, 1);
-                renderer.drawBoxedTexCoords(
-                        quad.x0(), quad.y0(),
-                        quad.x1(), quad.y1(),
-                        quad.s0(), quad.t0(),
-                        quad.s1(), quad.t1()
-                );
-                maxAboveBaseline = Math.max(maxAboveBaseline, -(int) quad.y0());
-                maxBelowBaseline = Math.max(maxBelowBaseline, (int) quad.y1());
+    /**
+     * Measures the text without allocating once its glyphs are packed, from any thread once the font is baked.
+     *
+     * @param bounds receives the bounds of the text
+     */
+    @Override
+    public void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds) {
+        synchronized (atlas) {
+            if (text instanceof String) {
+                getLayout(font, (String) text).getBounds(x, y, bounds);
+            } else {
+                layout(font, x, y, text, bounds);
             }
         }
-        GL11.glEnd();
-        GL11.glPopMatrix();
+    }
 
-        GL11.glDisable(GL11.GL_TEXTURE_2D);
+    private TextLayout getLayout(int font, String text) {
+//      evicted glyphs may have been packed elsewhere, the layouts using them are no longer valid
+        long generation = atlas.getGeneration();
+        if (generation != layoutGeneration) {
+            layoutCache.clear();
+            layoutGeneration = generation;
+        }
+        return layoutCache.get(font, text, layouter);
+    }
 
-        return new Rectangle(
-                x, y + 1 - maxAboveBaseline,
-                (int) quad.x1(), maxAboveBaseline + maxBelowBaseline);
+    private TextLayout layout(int font, String text) {
+        Rectangle bounds = new Rectangle(0, 0, 0, 0);
+        int glyphCount = layout(font, 0, 0, text, bounds);
+        int aboveBaseline = 1 - bounds.y;
+        return new TextLayout(
+                Arrays.copyOf(quads, glyphCount * SpriteBatch.FLOATS_PER_QUAD), Arrays.copyOf(pages, glyphCount), glyphCount,
+                bounds.width, aboveBaseline, bounds.height - aboveBaseline);
     }
 
-    public Rectangle getBounds(int x, int y, String text) {
+    /**
+     * Lays the text out into {@link #quads} and {@link #pages}, relative to the start of the baseline, and computes its bounds.
+     * Characters without a glyph are skipped.
+     *
+     * @return the number of glyphs
+     */
+    private int layout(int font, int x, int y, CharSequence text, Rectangle bounds) {
+        if (font < 0 || font >= atlas.getFontCount()) {
+            loadFonts(font);
+        }
+        if (pages.length < text.length()) {
+            quads = new float[text.length() * SpriteBatch.FLOATS_PER_QUAD];
+            pages = new int[text.length()];
+        }
+        GlyphMetrics metrics = atlas.getMetrics();
         int maxAboveBaseline = 0;
         int maxBelowBaseline = 0;
 
-        FloatBuffer bX = getXBuffer();
-        FloatBuffer bY = getYBuffer();
-        for (int character : toASCII(text)) {
-            STBTruetype.stbtt_GetBakedQuad(cdata, BITMAP_W, BITMAP_H, character, bX, bY, quad, 1);
-            maxAboveBaseline = Math.min(maxAboveBaseline, (int) quad.y0());
-            maxBelowBaseline = Math.max(maxBelowBaseline, (int) quad.y1());
+        float penX = 0;
+        float x1 = 0;
+        int glyphCount = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+            int glyph = atlas.getGlyph(font, codePoint);
+            if (glyph < 0) {
+                continue;
+            }
+            float y0 = metrics.getY0(glyph);
+            float y1 = metrics.getY1(glyph);
+            x1 = metrics.getX1(glyph, penX);
+            int offset = glyphCount * SpriteBatch.FLOATS_PER_QUAD;
+            quads[offset] = metrics.getX0(glyph, penX);
+            quads[offset + 1] = y0;
+            quads[offset + 2] = x1;
+            quads[offset + 3] = y1;
+            quads[offset + 4] = metrics.getS0(glyph);
+            quads[offset + 5] = metrics.getT0(glyph);
+            quads[offset + 6] = metrics.getS1(glyph);
+            quads[offset + 7] = metrics.getT1(glyph);
+            pages[glyphCount++] = metrics.getPage(glyph);
+//          oversampled glyphs are not aligned to whole pixels, their bounds are rounded outwards
+            maxAboveBaseline = Math.max(maxAboveBaseline, (int) Math.ceil(-y0));
+            maxBelowBaseline = Math.max(maxBelowBaseline, (int) Math.ceil(y1));
+            penX += metrics.getAdvance(glyph);
         }
 
-        return new Rectangle(
-                x, y + maxAboveBaseline + 1,
-                (int) quad.x1(), -maxAboveBaseline + maxBelowBaseline);
+        bounds.x = x;
+        bounds.y = y + 1 - maxAboveBaseline;
+        bounds.width = (int) Math.ceil(x1);
+        bounds.height = maxAboveBaseline + maxBelowBaseline;
+        return glyphCount;
     }
 
-    private static FloatBuffer getXBuffer() {
-        if (xBuffer == null) {
-            xBuffer = BufferUtils.createFloatBuffer(1);
-        }
-        xBuffer.put(0, 0.0f);
-        return xBuffer;
+    /**
+     * Lets glyphs used before this call be evicted from the atlas, call it once the frame they were drawn in is flushed.
+     */
+    public void endFrame() {
+        atlas.endFrame();
     }
 
-    private static FloatBuffer getYBuffer() {
-        if (yBuffer == null) {
-            yBuffer = BufferUtils.createFloatBuffer(1);
-        }
-        yBuffer.put(0, 0.0f);
-        return yBuffer;
+    /**
+     * @return the layouts of the text drawn and measured with every font
+     */
+    public TextLayoutCache getLayoutCache() {
+        return layoutCache;
+    }
+
+    GlyphAtlas getAtlas() {
+        return atlas;
     }
 
     public void destroy() {
-        quad.free();
-        MemoryUtil.memFree(cdata);
+        if (atlas != null) {
+            atlas.destroy();
+            atlas = null;
+        }
     }
 }
@@ -0,0 +1,172 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Renderer;
+import net.scriptgate.engine.lwjgl.command.CommandBufferRenderer;
+import net.scriptgate.engine.lwjgl.command.Drawable;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * A group of draw calls rendered once into an offscreen texture and drawn as a single textured quad
+ * until it is {@link #markDirty() marked dirty}.
+ * <p>
+ * Meant for backgrounds and panels that rarely change. The content is drawn with its own origin
+ * at the top left corner of the layer; anything outside the layer is cut off.
+ * <p>
+ * Drawn into a {@link CommandBufferRenderer}, the content is recorded along with the frame, on the thread recording it,
+ * and the thread replaying the frame renders the recorded content into the texture. The content is only ever
+ * called on the thread that draws the layer.
+ */
+public class RenderLayer implements Drawable {
+
+    private final int width;
+    private final int height;
+    private final Consumer<Renderer> content;
+
+    private int framebufferId;
+    private int textureId;
+    private boolean dirty = true;
+    //the content last recorded by draw, owned by the thread recording frames
+    private Recording recording;
+    //the recorded content the texture holds, owned by the thread replaying frames
+    private CommandBufferRenderer renderedRecording;
+
+    public RenderLayer(int width, int height, Consumer<Renderer> content) {
+        this.width = width;
+        this.height = height;
+        this.content = content;
+    }
+
+    /**
+     * Makes the layer render its content again the next time it is drawn.
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Draws the layer with its top left corner at (x, y). Renderers that cannot cache layers draw the content directly.
+     */
+    @Override
+    public void draw(Renderer renderer, int x, int y) {
+        if (renderer instanceof OpenGLRenderer && isSupported()) {
+            ((OpenGLRenderer) renderer).drawLayer(this, x, y);
+        } else if (renderer instanceof CommandBufferRenderer) {
+            CommandBufferRenderer commandBuffer = (CommandBufferRenderer) renderer;
+            commandBuffer.draw(record(commandBuffer), x, y);
+        } else {
+            renderer.translate(x, y);
+            content.accept(renderer);
+            renderer.translate(-x, -y);
+        }
+    }
+
+    private static boolean isSupported() {
+        return GL.getCapabilities().OpenGL30;
+    }
+
+    /**
+     * Records the content when it is dirty. A recording is never changed afterwards, frames still waiting
+     * to be replayed keep the one they were recorded with.
+     */
+    private Recording record(CommandBufferRenderer frame) {
+        if (recording == null || dirty) {
+            CommandBufferRenderer commands = new CommandBufferRenderer(frame, 4 * 1024);
+            content.accept(commands);
+            recording = new Recording(this, commands);
+            dirty = false;
+        }
+        return recording;
+    }
+
+    void renderContent(Renderer renderer) {
+        content.accept(renderer);
+        dirty = false;
+    }
+
+    boolean holds(CommandBufferRenderer commands) {
+        return renderedRecording == commands;
+    }
+
+    void renderContent(Renderer renderer, CommandBufferRenderer commands) {
+        commands.replay(renderer);
+        renderedRecording = commands;
+    }
+
+    /**
+     * Binds the framebuffer of the layer, creating it on first use.
+     */
+    void bindFramebuffer() {
+        if (framebufferId == 0) {
+            textureId = GL11.glGenTextures();
+            GLState.bindTexture(textureId);
+            GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA8, width, height, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, (ByteBuffer) null);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+            GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+
+            framebufferId = GL30.glGenFramebuffers();
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+            GL30.glFramebufferTexture2D(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL11.GL_TEXTURE_2D, textureId, 0);
+            int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+            if (status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+                throw new IllegalStateException(String.format("Render layer framebuffer is incomplete: 0x%X", status));
+            }
+        } else {
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+        }
+    }
+
+    int getTextureId() {
+        return textureId;
+    }
+
+    public void destroy() {
+        if (framebufferId != 0) {
+            GL30.glDeleteFramebuffers(framebufferId);
+            GLState.deleteTexture(textureId);
+            framebufferId = 0;
+            textureId = 0;
+        }
+        dirty = true;
+        renderedRecording = null;
+    }
+
+    private static final class Recording implements Drawable {
+
+        private final RenderLayer layer;
+        private final CommandBufferRenderer commands;
+
+        private Recording(RenderLayer layer, CommandBufferRenderer commands) {
+            this.layer = layer;
+            this.commands = commands;
+        }
+
+        @Override
+        public void draw(Renderer renderer, int x, int y) {
+            if (renderer instanceof OpenGLRenderer && isSupported()) {
+                ((OpenGLRenderer) renderer).drawLayer(layer, commands, x, y);
+            } else {
+                renderer.translate(x, y);
+                commands.replay(renderer);
+                renderer.translate(-x, -y);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.gl.GLState;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * What the last frame cost: the time spent rendering and swapping buffers, and the counters kept by {@link GLState}.
+ * <p>
+ * Values are published once per frame by the render thread and can be read from any thread,
+ * also through JMX once {@link #register() registered}. Recording a frame does not allocate.
+ */
+public class RenderStatistics implements RenderStatisticsMBean {
+
+    static final String OBJECT_NAME = "net.scriptgate.engine:type=RenderStatistics";
+
+    private volatile long frames;
+    private volatile long renderNanos;
+    private volatile long swapNanos;
+    private volatile long drawCalls;
+    private volatile long vertices;
+    private volatile long textureBinds;
+    private volatile long stateChanges;
+
+    private ObjectName objectName;
+
+    /**
+     * Publishes the counters of the frame that just ended and resets them for the next one.
+     *
+     * @param renderNanos the time spent from {@code application.render} up to and including the last draw call
+     * @param swapNanos   the time spent in {@code glfwSwapBuffers}, which includes waiting for vertical sync
+     */
+    void endFrame(long renderNanos, long swapNanos) {
+        this.renderNanos = renderNanos;
+        this.swapNanos = swapNanos;
+        this.drawCalls = GLState.getDrawCalls();
+        this.vertices = GLState.getDrawnVertices();
+        this.textureBinds = GLState.getTextureBinds();
+        this.stateChanges = GLState.getStateChanges();
+        GLState.resetCounters();
+        frames++;
+    }
+
+    /**
+     * Registers these statistics with the platform MBean server, under {@value #OBJECT_NAME}.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName(OBJECT_NAME);
+            server.registerMBean(this, objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to register the render statistics as " + OBJECT_NAME, e);
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException("Unable to unregister the render statistics " + OBJECT_NAME, e);
+        } finally {
+            objectName = null;
+        }
+    }
+
+    @Override
+    public long getFrames() {
+        return frames;
+    }
+
+    @Override
+    public long getRenderNanos() {
+        return renderNanos;
+    }
+
+    @Override
+    public long getSwapNanos() {
+        return swapNanos;
+    }
+
+    @Override
+    public long getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * @return the number of vertices processed by the draw calls, shared vertices are counted once per index.
+     */
+    @Override
+    public long getVertices() {
+        return vertices;
+    }
+
+    @Override
+    public long getTextureBinds() {
+        return textureBinds;
+    }
+
+    @Override
+    public long getStateChanges() {
+        return stateChanges;
+    }
+}
@@ -0,0 +1,21 @@
+package net.scriptgate.engine.lwjgl;
+
+/**
+ * Management interface of {@link RenderStatistics}, every value describes the last completed frame.
+ */
+public interface RenderStatisticsMBean {
+
+    long getFrames();
+
+    long getRenderNanos();
+
+    long getSwapNanos();
+
+    long getDrawCalls();
+
+    long getVertices();
+
+    long getTextureBinds();
+
+    long getStateChanges();
+}
@@ -0,0 +1,97 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.command.CommandBufferRenderer;
+import net.scriptgate.engine.lwjgl.command.FrameSnapshots;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Owns the GL context of a window and draws the frames published to its {@link FrameSnapshots} as they come in,
+ * so the thread recording the frames never waits for the driver or for vertical sync.
+ * <p>
+ * The context is created and initialized by the engine thread, then handed over with {@link #start()}
+ * and handed back with {@link #stop()}. In between, only this thread may make GL calls, see {@link #post(Runnable)}.
+ */
+class RenderThread implements Runnable {
+
+    private final long window;
+    private final GLCapabilities capabilities;
+    private final int swapInterval;
+    private final FrameSnapshots snapshots;
+    private final Consumer<CommandBufferRenderer> frameDrawer;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Thread thread;
+
+    /**
+     * @param frameDrawer draws and presents a frame, called on this thread with the context current
+     */
+    RenderThread(long window, int swapInterval, FrameSnapshots snapshots, Consumer<CommandBufferRenderer> frameDrawer) {
+        this.window = window;
+        this.capabilities = GL.getCapabilities();
+        this.swapInterval = swapInterval;
+        this.snapshots = snapshots;
+        this.frameDrawer = frameDrawer;
+        this.thread = new Thread(this, "render");
+    }
+
+    /**
+     * Releases the context from the calling thread and starts drawing.
+     */
+    void start() {
+        GLFW.glfwMakeContextCurrent(MemoryUtil.NULL);
+        thread.start();
+    }
+
+    /**
+     * Runs a task that needs the context before the next frame is drawn.
+     */
+    void post(Runnable task) {
+        tasks.add(task);
+    }
+
+    @Override
+    public void run() {
+        GLFW.glfwMakeContextCurrent(window);
+        GL.setCapabilities(capabilities);
+//      the swap interval belongs to the context on some platforms and to the thread on others
+        GLFW.glfwSwapInterval(swapInterval);
+        try {
+            CommandBufferRenderer frame;
+            while ((frame = snapshots.take()) != null) {
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                frameDrawer.accept(frame);
+            }
+        } catch (RuntimeException | Error e) {
+//          the engine thread may be waiting to publish a frame nobody will take
+            snapshots.close();
+            GLFW.glfwSetWindowShouldClose(window, GL11.GL_TRUE);
+            throw e;
+        } finally {
+            GLFW.glfwMakeContextCurrent(MemoryUtil.NULL);
+        }
+    }
+
+    /**
+     * Waits for the frame being drawn and makes the context current on the calling thread again.
+     */
+    void stop() {
+        snapshots.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        GLFW.glfwMakeContextCurrent(window);
+        GL.setCapabilities(capabilities);
+    }
+}
@@ -0,0 +1,81 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.lwjgl.batch.SpriteBatch;
+
+/**
+ * The glyph quads of a string laid out with one font, relative to the start of its baseline, and the atlas pages they are in.
+ * <p>
+ * Every quad is stored as {@code x0, y0, x1, y1, s0, t0, s1, t1}, see {@link SpriteBatch#draw(int, float[], int, int, float, float, net.scriptgate.common.Color4f) SpriteBatch.draw}.
+ * Layouts are not changed once created and can be shared between threads.
+ */
+final class TextLayout {
+
+    private final float[] quads;
+    private final int[] pages;
+    private final int glyphCount;
+    private final int width;
+    private final int aboveBaseline;
+    private final int belowBaseline;
+
+    /**
+     * @param width the right of the last glyph, the width of the bounds
+     */
+    TextLayout(float[] quads, int[] pages, int glyphCount, int width, int aboveBaseline, int belowBaseline) {
+        this.quads = quads;
+        this.pages = pages;
+        this.glyphCount = glyphCount;
+        this.width = width;
+        this.aboveBaseline = aboveBaseline;
+        this.belowBaseline = belowBaseline;
+    }
+
+    float[] getQuads() {
+        return quads;
+    }
+
+    /**
+     * @return the atlas page every glyph is packed in
+     */
+    int[] getPages() {
+        return pages;
+    }
+
+    int getGlyphCount() {
+        return glyphCount;
+    }
+
+    /**
+     * @return the distance from the baseline to the top of the highest glyph
+     */
+    int getAboveBaseline() {
+        return aboveBaseline;
+    }
+
+    int getBelowBaseline() {
+        return belowBaseline;
+    }
+
+    /**
+     * @return the bounds of the text drawn with its baseline one pixel below {@code y}, as {@link net.scriptgate.engine.Renderer#drawText(int, int, String)} does
+     */
+    Rectangle getBounds(int x, int y) {
+        Rectangle bounds = new Rectangle(0, 0, 0, 0);
+        getBounds(x, y, bounds);
+        return bounds;
+    }
+
+    void getBounds(int x, int y, Rectangle bounds) {
+        bounds.x = x;
+        bounds.y = y + 1 - aboveBaseline;
+        bounds.width = width;
+        bounds.height = aboveBaseline + belowBaseline;
+    }
+
+    /**
+     * @return an estimate of the heap used by the layout and its key, in bytes
+     */
+    int getMemoryUsage(String text) {
+        return TextLayoutCache.ENTRY_OVERHEAD + quads.length * Float.BYTES + pages.length * Integer.BYTES + text.length() * Character.BYTES;
+    }
+}
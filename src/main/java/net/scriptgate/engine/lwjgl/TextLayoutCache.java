@@ -0,0 +1,142 @@
+package net.scriptgate.engine.lwjgl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps the layouts of the strings drawn and measured with each font, so text drawn every frame is only laid out once.
+ * <p>
+ * The least recently used layouts are evicted once the estimated memory of all layouts exceeds the budget.
+ * A budget of 0 disables the cache. The cache can be used from several threads.
+ */
+public class TextLayoutCache {
+
+    /**
+     * Lays out a string that is not cached yet.
+     */
+    @FunctionalInterface
+    interface Layouter {
+        TextLayout layout(int font, String text);
+    }
+
+//  the map entry, the key, the layout and the array and string headers, roughly
+    static final int ENTRY_OVERHEAD = 144;
+
+    private final Map<Key, TextLayout> layouts = new LinkedHashMap<>(64, 0.75f, true);
+//  looks layouts up without allocating a key, only used under the lock
+    private final Key lookup = new Key();
+
+    private int memoryBudget;
+    private long memoryUsed;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public TextLayoutCache() {
+        this(256 * 1024);
+    }
+
+    public TextLayoutCache(int memoryBudget) {
+        setMemoryBudget(memoryBudget);
+    }
+
+    synchronized TextLayout get(int font, String text, Layouter layouter) {
+        lookup.font = font;
+        lookup.text = text;
+        TextLayout cached = layouts.get(lookup);
+        lookup.text = null;
+        if (cached != null) {
+            hits++;
+            return cached;
+        }
+        misses++;
+        TextLayout created = layouter.layout(font, text);
+        int memoryUsage = created.getMemoryUsage(text);
+        if (memoryUsage <= memoryBudget) {
+            Key key = new Key();
+            key.font = font;
+            key.text = text;
+            layouts.put(key, created);
+            memoryUsed += memoryUsage;
+            evict();
+        }
+        return created;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, TextLayout>> leastRecentlyUsed = layouts.entrySet().iterator();
+        while (memoryUsed > memoryBudget) {
+            Map.Entry<Key, TextLayout> entry = leastRecentlyUsed.next();
+            memoryUsed -= entry.getValue().getMemoryUsage(entry.getKey().text);
+            leastRecentlyUsed.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * @param memoryBudget the estimated number of bytes the layouts may use, layouts are evicted when it is lowered
+     */
+    public synchronized void setMemoryBudget(int memoryBudget) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("Memory budget cannot be negative: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        evict();
+    }
+
+    public synchronized int getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public synchronized long getMemoryUsed() {
+        return memoryUsed;
+    }
+
+    public synchronized int getSize() {
+        return layouts.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized void clear() {
+        layouts.clear();
+        memoryUsed = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d layouts, %d of %d bytes, %d hits, %d misses, %d evictions",
+                layouts.size(), memoryUsed, memoryBudget, hits, misses, evictions);
+    }
+
+    private static final class Key {
+
+        private int font;
+        private String text;
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return font == key.font && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * font + text.hashCode();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package net.scriptgate.engine.lwjgl.batch;
+
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import net.scriptgate.engine.lwjgl.gl.SpriteShader;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+/**
+ * {@link PrimitiveBatch} feeding the {@link SpriteShader} through generic vertex attributes, for core profile contexts.
+ * Primitives are drawn with the white texture, the texture coordinate attribute is left disabled.
+ * Needs a vertex array object to be bound while flushing.
+ */
+public class CorePrimitiveBatch extends PrimitiveBatch {
+
+    private final SpriteShader shader;
+
+    public CorePrimitiveBatch(SpriteShader shader) {
+        this.shader = shader;
+    }
+
+    @Override
+    protected void beginState() {
+        shader.use();
+        GLState.bindTexture(shader.getWhiteTexture());
+    }
+
+    @Override
+    protected void enableArrays(int stride, long offset) {
+        GL20.glEnableVertexAttribArray(SpriteShader.POSITION);
+        GL20.glEnableVertexAttribArray(SpriteShader.COLOR);
+        GL20.glVertexAttribPointer(SpriteShader.POSITION, 2, GL11.GL_FLOAT, false, stride, offset);
+        GL20.glVertexAttribPointer(SpriteShader.COLOR, 4, GL11.GL_FLOAT, false, stride, offset + 2 * Float.BYTES);
+    }
+
+    @Override
+    protected void disableArrays() {
+        GL20.glDisableVertexAttribArray(SpriteShader.COLOR);
+        GL20.glDisableVertexAttribArray(SpriteShader.POSITION);
+    }
+
+    @Override
+    protected void immediateVertex(int offset) {
+        throw new IllegalStateException("Immediate mode is not available in a core profile context");
+    }
+}
@@ -0,0 +1,47 @@
+package net.scriptgate.engine.lwjgl.batch;
+
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import net.scriptgate.engine.lwjgl.gl.SpriteShader;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+/**
+ * {@link SpriteBatch} feeding the {@link SpriteShader} through generic vertex attributes, for core profile contexts.
+ * Needs a vertex array object to be bound while flushing.
+ */
+public class CoreSpriteBatch extends SpriteBatch {
+
+    private final SpriteShader shader;
+
+    public CoreSpriteBatch(SpriteShader shader) {
+        this.shader = shader;
+    }
+
+    @Override
+    protected void beginState() {
+        shader.use();
+        GLState.bindTexture(getState());
+    }
+
+    @Override
+    protected void enableArrays(int stride, long offset) {
+        GL20.glEnableVertexAttribArray(SpriteShader.POSITION);
+        GL20.glEnableVertexAttribArray(SpriteShader.TEXTURE_COORDINATE);
+        GL20.glEnableVertexAttribArray(SpriteShader.COLOR);
+        GL20.glVertexAttribPointer(SpriteShader.POSITION, 2, GL11.GL_FLOAT, false, stride, offset);
+        GL20.glVertexAttribPointer(SpriteShader.TEXTURE_COORDINATE, 2, GL11.GL_FLOAT, false, stride, offset + 2 * Float.BYTES);
+        GL20.glVertexAttribPointer(SpriteShader.COLOR, 4, GL11.GL_FLOAT, false, stride, offset + 4 * Float.BYTES);
+    }
+
+    @Override
+    protected void disableArrays() {
+        GL20.glDisableVertexAttribArray(SpriteShader.COLOR);
+        GL20.glDisableVertexAttribArray(SpriteShader.TEXTURE_COORDINATE);
+        GL20.glDisableVertexAttribArray(SpriteShader.POSITION);
+    }
+
+    @Override
+    protected void immediateVertex(int offset) {
+        throw new IllegalStateException("Immediate mode is not available in a core profile context");
+    }
+}
@@ -0,0 +1,309 @@
+package net.scriptgate.engine.lwjgl.batch;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Holds the primitives of a frame so they can be drawn sorted by layer and by state instead of in submission order.
+ * <p>
+ * Inside a layer, primitives are grouped in stages. A primitive joins the stage after the last stage it overlaps,
+ * or that stage itself when everything in it shares its state. Within a stage nothing of a different state overlaps,
+ * so primitives can be sorted by state there without changing what ends up on screen.
+ * Stages are tracked by the union of their bounds, which may add stages but never reorders overlapping primitives.
+ */
+public class DrawList {
+
+    public static final int MIN_LAYER = -1024;
+    public static final int MAX_LAYER = 1023;
+
+    private static final int SEQUENCE_BITS = 20;
+    private static final int STATE_BITS = 20;
+    private static final int STAGE_BITS = 12;
+
+    private static final int MAX_ITEMS = 1 << SEQUENCE_BITS;
+    private static final int MAX_STAGES = 1 << STAGE_BITS;
+    private static final long SEQUENCE_MASK = MAX_ITEMS - 1;
+    private static final int STATE_MASK = (1 << STATE_BITS) - 1;
+    private static final int MIXED = -1;
+
+    private static final int MAX_BATCHES = 4;
+
+    private final VertexBatch[] batches = new VertexBatch[MAX_BATCHES];
+    private int batchCount;
+
+    private int itemCount;
+    private int[] itemLayer = new int[256];
+    private int[] itemBatch = new int[256];
+    private int[] itemMode = new int[256];
+    private int[] itemState = new int[256];
+    private int[] itemBlend = new int[256];
+    private int[] itemVertexStart = new int[256];
+    private int[] itemVertexFloats = new int[256];
+    private int[] itemIndexStart = new int[256];
+    private int[] itemIndexCount = new int[256];
+    private float[] itemBounds = new float[256 * 4];
+    private long[] keys = new long[256];
+
+    private float[] vertexData = new float[16 * 1024];
+    private int vertexFloats;
+    private short[] indexData = new short[16 * 1024];
+    private int indexCount;
+
+    private float[] stageBounds = new float[64 * 4];
+    private int[] stageKeys = new int[64];
+
+    private int stateChanges;
+
+    /**
+     * Moves the single primitive buffered in the batch into the list, without drawing it.
+     *
+     * @param layer primitives in lower layers are drawn first
+     * @param blend the blend mode the primitive is drawn with, passed back when the list is submitted
+     */
+    public void add(VertexBatch batch, int layer, int blend) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (layer < MIN_LAYER || layer > MAX_LAYER) {
+            throw new IllegalArgumentException("Layer must be between " + MIN_LAYER + " and " + MAX_LAYER + ": " + layer);
+        }
+        ensureItemCapacity();
+
+        int item = itemCount++;
+        itemLayer[item] = layer;
+        itemBatch[item] = indexOf(batch);
+        itemMode[item] = batch.getMode();
+        itemState[item] = batch.getState();
+        itemBlend[item] = blend;
+
+        int floats = batch.getVertexFloats();
+        int indices = batch.getIndexCount();
+        vertexData = ensureCapacity(vertexData, vertexFloats + floats);
+        indexData = ensureCapacity(indexData, indexCount + indices);
+        itemVertexStart[item] = vertexFloats;
+        itemVertexFloats[item] = floats;
+        itemIndexStart[item] = indexCount;
+        itemIndexCount[item] = indices;
+        batch.drain(vertexData, vertexFloats, indexData, indexCount);
+
+        int stride = batch.getFloatsPerVertex();
+        float left = Float.POSITIVE_INFINITY, top = Float.POSITIVE_INFINITY;
+        float right = Float.NEGATIVE_INFINITY, bottom = Float.NEGATIVE_INFINITY;
+        for (int vertex = vertexFloats; vertex < vertexFloats + floats; vertex += stride) {
+            for (int offset : batch.getPositionOffsets()) {
+                float x = vertexData[vertex + offset];
+                float y = vertexData[vertex + offset + 1];
+                left = Math.min(left, x);
+                right = Math.max(right, x);
+                top = Math.min(top, y);
+                bottom = Math.max(bottom, y);
+            }
+        }
+        itemBounds[item * 4] = left;
+        itemBounds[item * 4 + 1] = top;
+        itemBounds[item * 4 + 2] = right;
+        itemBounds[item * 4 + 3] = bottom;
+
+        vertexFloats += floats;
+        indexCount += indices;
+    }
+
+    public boolean isFull() {
+        return itemCount == MAX_ITEMS;
+    }
+
+    public boolean isEmpty() {
+        return itemCount == 0;
+    }
+
+    public int size() {
+        return itemCount;
+    }
+
+    private int indexOf(VertexBatch batch) {
+        for (int i = 0; i < batchCount; i++) {
+            if (batches[i] == batch) {
+                return i;
+            }
+        }
+        if (batchCount == MAX_BATCHES) {
+            throw new IllegalStateException("Too many batches in a draw list");
+        }
+        batches[batchCount] = batch;
+        return batchCount++;
+    }
+
+    private int getStateKey(int item) {
+        //batch, mode and blend first, so primitives drawn by the same batch end up next to each other
+        int key = itemBatch[item];
+        key = key * 8 + (itemMode[item] & 7);
+        key = key * 2 + (itemBlend[item] & 1);
+        key = (key << 14) | (itemState[item] & 0x3FFF);
+        return key & STATE_MASK;
+    }
+
+    /**
+     * Draws every primitive in sorted order through the batches they came from and empties the list.
+     *
+     * @param blendFunction called with the blend mode of the next primitives whenever it changes
+     */
+    public void submit(IntConsumer blendFunction) {
+        stateChanges = 0;
+        if (itemCount == 0) {
+            return;
+        }
+        sortByLayer();
+        assignStages();
+        Arrays.sort(keys, 0, itemCount);
+
+        VertexBatch current = null;
+        int blend = MIXED;
+        int state = MIXED;
+        for (int i = 0; i < itemCount; i++) {
+            int item = (int) (keys[i] & SEQUENCE_MASK);
+            VertexBatch batch = batches[itemBatch[item]];
+            if (batch != current || itemBlend[item] != blend || itemState[item] != state || itemMode[item] != current.getMode()) {
+                stateChanges++;
+            }
+            if (batch != current || itemBlend[item] != blend) {
+                if (current != null) {
+                    current.flush();
+                }
+                if (itemBlend[item] != blend) {
+                    blend = itemBlend[item];
+                    blendFunction.accept(blend);
+                }
+                current = batch;
+            }
+            state = itemState[item];
+            batch.setState(state);
+            batch.append(itemMode[item],
+                    vertexData, itemVertexStart[item], itemVertexFloats[item],
+                    indexData, itemIndexStart[item], itemIndexCount[item]);
+        }
+        current.flush();
+        clear();
+    }
+
+    /**
+     * @return the number of times the batch, blend mode, primitive type or texture changed during the last submit.
+     */
+    public int getStateChanges() {
+        return stateChanges;
+    }
+
+    public void clear() {
+        itemCount = 0;
+        vertexFloats = 0;
+        indexCount = 0;
+    }
+
+    private void sortByLayer() {
+        for (int item = 0; item < itemCount; item++) {
+            keys[item] = ((long) (itemLayer[item] - MIN_LAYER) << SEQUENCE_BITS) | item;
+        }
+        Arrays.sort(keys, 0, itemCount);
+    }
+
+    private void assignStages() {
+        int layerStart = 0;
+        while (layerStart < itemCount) {
+            int layer = itemLayer[(int) (keys[layerStart] & SEQUENCE_MASK)];
+            int layerEnd = layerStart;
+            while (layerEnd < itemCount && itemLayer[(int) (keys[layerEnd] & SEQUENCE_MASK)] == layer) {
+                layerEnd++;
+            }
+            if (!assignStages(layerStart, layerEnd)) {
+//              too many stages, keep this layer in submission order
+                for (int i = layerStart; i < layerEnd; i++) {
+                    keys[i] = createKey(layer, 0, 0, (int) (keys[i] & SEQUENCE_MASK));
+                }
+            }
+            layerStart = layerEnd;
+        }
+    }
+
+    private boolean assignStages(int from, int to) {
+        int stages = 0;
+        for (int i = from; i < to; i++) {
+            int item = (int) (keys[i] & SEQUENCE_MASK);
+            int key = getStateKey(item);
+
+            int stage = 0;
+            for (int s = stages - 1; s >= 0; s--) {
+                if (overlaps(stageBounds, s, itemBounds, item)) {
+                    stage = stageKeys[s] == key ? s : s + 1;
+                    break;
+                }
+            }
+            if (stage == MAX_STAGES) {
+                return false;
+            }
+            if (stage == stages) {
+                ensureStageCapacity(stages + 1);
+                stageKeys[stage] = key;
+                System.arraycopy(itemBounds, item * 4, stageBounds, stage * 4, 4);
+                stages++;
+            } else {
+                if (stageKeys[stage] != key) {
+                    stageKeys[stage] = MIXED;
+                }
+                union(stageBounds, stage, itemBounds, item);
+            }
+            keys[i] = createKey(itemLayer[item], stage, key, item);
+        }
+        return true;
+    }
+
+    private static long createKey(int layer, int stage, int stateKey, int item) {
+        return ((long) (layer - MIN_LAYER) << (STAGE_BITS + STATE_BITS + SEQUENCE_BITS))
+                | ((long) stage << (STATE_BITS + SEQUENCE_BITS))
+                | ((long) stateKey << SEQUENCE_BITS)
+                | item;
+    }
+
+    private static boolean overlaps(float[] a, int i, float[] b, int j) {
+        return a[i * 4] <= b[j * 4 + 2] && b[j * 4] <= a[i * 4 + 2]
+                && a[i * 4 + 1] <= b[j * 4 + 3] && b[j * 4 + 1] <= a[i * 4 + 3];
+    }
+
+    private static void union(float[] a, int i, float[] b, int j) {
+        a[i * 4] = Math.min(a[i * 4], b[j * 4]);
+        a[i * 4 + 1] = Math.min(a[i * 4 + 1], b[j * 4 + 1]);
+        a[i * 4 + 2] = Math.max(a[i * 4 + 2], b[j * 4 + 2]);
+        a[i * 4 + 3] = Math.max(a[i * 4 + 3], b[j * 4 + 3]);
+    }
+
+    private void ensureItemCapacity() {
+        if (itemCount < itemLayer.length) {
+            return;
+        }
+        int capacity = itemLayer.length * 2;
+        itemLayer = Arrays.copyOf(itemLayer, capacity);
+        itemBatch = Arrays.copyOf(itemBatch, capacity);
+        itemMode = Arrays.copyOf(itemMode, capacity);
+        itemState = Arrays.copyOf(itemState, capacity);
+        itemBlend = Arrays.copyOf(itemBlend, capacity);
+        itemVertexStart = Arrays.copyOf(itemVertexStart, capacity);
+        itemVertexFloats = Arrays.copyOf(itemVertexFloats, capacity);
+        itemIndexStart = Arrays.copyOf(itemIndexStart, capacity);
+        itemIndexCount = Arrays.copyOf(itemIndexCount, capacity);
+        itemBounds = Arrays.copyOf(itemBounds, capacity * 4);
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    private void ensureStageCapacity(int stages) {
+        if (stages > stageKeys.length) {
+            stageKeys = Arrays.copyOf(stageKeys, stageKeys.length * 2);
+            stageBounds = Arrays.copyOf(stageBounds, stageBounds.length * 2);
+        }
+    }
+
+    private static float[] ensureCapacity(float[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static short[] ensureCapacity(short[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+}
@@ -0,0 +1,213 @@
+package net.scriptgate.engine.lwjgl.batch;
+
+import net.scriptgate.common.Color4f;
+import net.scriptgate.engine.lwjgl.geometry.TransformStack;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import net.scriptgate.engine.lwjgl.gl.ShaderProgram;
+import net.scriptgate.engine.lwjgl.gl.StreamBuffer;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL31;
+import org.lwjgl.opengl.GL33;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Collects textured quads as instances of a single unit quad: only the destination rectangle, the source rectangle
+ * and the color of a sprite are uploaded, a third of what {@link SpriteBatch} sends.
+ * Every run of sprites sharing the same texture is drawn with one {@code glDrawArraysInstanced} call.
+ * <p>
+ * Needs OpenGL 3.3 for per-instance attributes, see {@link #isInstanced()}.
+ */
+public class InstancedSpriteBatch extends VertexBatch {
+
+    private static final int NO_TEXTURE = -1;
+
+    //x0, y0, x1, y1, s0, t0, s1, t1, r, g, b, a
+    private static final int FLOATS_PER_INSTANCE = 12;
+    private static final int[] POSITION_OFFSETS = {0, 2};
+
+    private static final int CORNER = 0;
+    private static final int RECTANGLE = 1;
+    private static final int TEXTURE_RECTANGLE = 2;
+    private static final int COLOR = 3;
+
+    //@formatter:off
+    private static final String VERTEX_SHADER = "" +
+            "#version 120\n" +
+            "attribute vec2 corner;\n" +
+            "attribute vec4 rectangle;\n" +
+            "attribute vec4 textureRectangle;\n" +
+            "attribute vec4 color;\n" +
+            "varying vec2 textureCoordinate;\n" +
+            "varying vec4 tint;\n" +
+            "void main() {\n" +
+            "    vec2 position = mix(rectangle.xy, rectangle.zw, corner);\n" +
+            "    textureCoordinate = mix(textureRectangle.xy, textureRectangle.zw, corner);\n" +
+            "    tint = color;\n" +
+            "    gl_Position = gl_ModelViewProjectionMatrix * vec4(position, 0.0, 1.0);\n" +
+            "}\n";
+
+    private static final String FRAGMENT_SHADER = "" +
+            "#version 120\n" +
+            "uniform sampler2D sprite;\n" +
+            "varying vec2 textureCoordinate;\n" +
+            "varying vec4 tint;\n" +
+            "void main() {\n" +
+            "    gl_FragColor = texture2D(sprite, textureCoordinate) * tint;\n" +
+            "}\n";
+    //@formatter:on
+
+    private int texture = NO_TEXTURE;
+    private ShaderProgram program;
+    private int cornerBufferId;
+
+    public InstancedSpriteBatch() {
+        this(4096);
+    }
+
+    public InstancedSpriteBatch(int capacity) {
+        super(FLOATS_PER_INSTANCE, capacity, capacity);
+    }
+
+    @Override
+    public void initialize(StreamBuffer streamBuffer) {
+        super.initialize(streamBuffer);
+        if (isImmediateMode() || !GL.getCapabilities().OpenGL33) {
+            return;
+        }
+        program = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER, "corner", "rectangle", "textureRectangle", "color");
+        program.use();
+        GL20.glUniform1i(program.getUniformLocation("sprite"), 0);
+        ShaderProgram.useFixedFunction();
+
+        FloatBuffer corners = BufferUtils.createFloatBuffer(8);
+        corners.put(0).put(0).put(1).put(0).put(1).put(1).put(0).put(1).flip();
+        cornerBufferId = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, cornerBufferId);
+        GL15.glBufferData(GL15.GL_ARRAY_BUFFER, corners, GL15.GL_STATIC_DRAW);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * @return false when the context cannot draw instances, in which case a {@link SpriteBatch} should be used instead.
+     */
+    public boolean isInstanced() {
+        return program != null && !isImmediateMode();
+    }
+
+    /**
+     * Only the corners (x0, y0) and (x1, y1) are transformed, so the transform has to be {@link TransformStack#isAxisAligned() axis aligned}.
+     */
+    //@formatter:off
+    public void draw(int textureId,
+                     float x0, float y0, float x1, float y1,
+                     float s0, float t0, float s1, float t1,
+                     Color4f color) {
+        setState(textureId);
+        int instance = reserve(GL11.GL_QUADS, 1, 1);
+        vertices.put(transform.transformX(x0, y0)).put(transform.transformY(x0, y0));
+        vertices.put(transform.transformX(x1, y1)).put(transform.transformY(x1, y1));
+        vertices.put(s0).put(t0).put(s1).put(t1);
+        vertices.put(color.r).put(color.g).put(color.b).put(color.a);
+        indices.put((short) instance);
+    }
+    //@formatter:on
+
+    @Override
+    public int getState() {
+        return texture;
+    }
+
+    @Override
+    public void setState(int textureId) {
+        if (textureId != texture) {
+            flush();
+            texture = textureId;
+        }
+    }
+
+    @Override
+    int[] getPositionOffsets() {
+        return POSITION_OFFSETS;
+    }
+
+    @Override
+    protected void beginState() {
+        GLState.enable(GL11.GL_TEXTURE_2D);
+        GLState.bindTexture(texture);
+    }
+
+    @Override
+    protected void drawVertexBuffer() {
+        int instances = vertices.limit() / FLOATS_PER_INSTANCE;
+        long offset = getStreamBuffer().put(vertices);
+
+        program.use();
+        enableArrays(FLOATS_PER_INSTANCE * Float.BYTES, offset);
+        GL31.glDrawArraysInstanced(GL11.GL_TRIANGLE_FAN, 0, 4, instances);
+        GLState.countDrawCall(instances * 4);
+        disableArrays();
+        ShaderProgram.useFixedFunction();
+
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    @Override
+    protected void enableArrays(int stride, long offset) {
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, cornerBufferId);
+        GL20.glEnableVertexAttribArray(CORNER);
+        GL20.glVertexAttribPointer(CORNER, 2, GL11.GL_FLOAT, false, 0, 0);
+
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, getStreamBuffer().getBufferId());
+        enableInstanceArray(RECTANGLE, stride, offset);
+        enableInstanceArray(TEXTURE_RECTANGLE, stride, offset + 4 * Float.BYTES);
+        enableInstanceArray(COLOR, stride, offset + 8 * Float.BYTES);
+    }
+
+    private static void enableInstanceArray(int location, int stride, long offset) {
+        GL20.glEnableVertexAttribArray(location);
+        GL20.glVertexAttribPointer(location, 4, GL11.GL_FLOAT, false, stride, offset);
+        GL33.glVertexAttribDivisor(location, 1);
+    }
+
+    @Override
+    protected void disableArrays() {
+        for (int location = RECTANGLE; location <= COLOR; location++) {
+            GL33.glVertexAttribDivisor(location, 0);
+            GL20.glDisableVertexAttribArray(location);
+        }
+        GL20.glDisableVertexAttribArray(CORNER);
+    }
+
+    @Override
+    protected void immediateVertex(int offset) {
+        float x0 = vertices.get(offset), y0 = vertices.get(offset + 1);
+        float x1 = vertices.get(offset + 2), y1 = vertices.get(offset + 3);
+        float s0 = vertices.get(offset + 4), t0 = vertices.get(offset + 5);
+        float s1 = vertices.get(offset + 6), t1 = vertices.get(offset + 7);
+        GLState.color(vertices.get(offset + 8), vertices.get(offset + 9), vertices.get(offset + 10), vertices.get(offset + 11));
+        GL11.glTexCoord2f(s0, t0);
+        GL11.glVertex2f(x0, y0);
+        GL11.glTexCoord2f(s1, t0);
+        GL11.glVertex2f(x1, y0);
+        GL11.glTexCoord2f(s1, t1);
+        GL11.glVertex2f(x1, y1);
+        GL11.glTexCoord2f(s0, t1);
+        GL11.glVertex2f(x0, y1);
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (program != null) {
+            program.destroy();
+            GL15.glDeleteBuffers(cornerBufferId);
+            program = null;
+            cornerBufferId = 0;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.scriptgate.engine.lwjgl.batch;
+
+import net.scriptgate.common.Color4f;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Collects untextured triangles and line segments. Consecutive primitives of the same type
+ * are drawn with a single draw call.
+ */
+public class PrimitiveBatch extends VertexBatch {
+
+    //x, y, r, g, b, a
+    private static final int FLOATS_PER_VERTEX = 6;
+
+    public PrimitiveBatch() {
+        this(8192);
+    }
+
+    public PrimitiveBatch(int maxVertices) {
+        super(FLOATS_PER_VERTEX, maxVertices, maxVertices * 3);
+    }
+
+    public void fillRect(float x0, float y0, float x1, float y1, Color4f color) {
+        int vertex = reserve(GL11.GL_TRIANGLES, 4, 6);
+        putVertex(x0, y0, color);
+        putVertex(x1, y0, color);
+        putVertex(x1, y1, color);
+        putVertex(x0, y1, color);
+        indices.put((short) vertex).put((short) (vertex + 1)).put((short) (vertex + 2));
+        indices.put((short) (vertex + 2)).put((short) (vertex + 3)).put((short) vertex);
+    }
+
+    public void drawRect(float x0, float y0, float x1, float y1, Color4f color) {
+        int vertex = reserve(GL11.GL_LINES, 4, 8);
+        putVertex(x0, y0, color);
+        putVertex(x1, y0, color);
+        putVertex(x1, y1, color);
+        putVertex(x0, y1, color);
+        indices.put((short) vertex).put((short) (vertex + 1));
+        indices.put((short) (vertex + 1)).put((short) (vertex + 2));
+        indices.put((short) (vertex + 2)).put((short) (vertex + 3));
+        indices.put((short) (vertex + 3)).put((short) vertex);
+    }
+
+    public void drawLine(float x0, float y0, float x1, float y1, Color4f color) {
+        int vertex = reserve(GL11.GL_LINES, 2, 2);
+        putVertex(x0, y0, color);
+        putVertex(x1, y1, color);
+        indices.put((short) vertex).put((short) (vertex + 1));
+    }
+
+    /**
+     * @param points the corners of a convex polygon relative to (x, y), as interleaved x and y coordinates.
+     */
+    public void fillPolygon(float x, float y, float[] points, Color4f color) {
+        int corners = points.length / 2;
+        int vertex = reserve(GL11.GL_TRIANGLES, corners, (corners - 2) * 3);
+        for (int i = 0; i < points.length; i += 2) {
+            putVertex(x + points[i], y + points[i + 1], color);
+        }
+        for (int i = 1; i < corners - 1; i++) {
+            indices.put((short) vertex).put((short) (vertex + i)).put((short) (vertex + i + 1));
+        }
+    }
+
+    /**
+     * @param points the corners of a closed polygon relative to (x, y), as interleaved x and y coordinates.
+     */
+    public void drawPolygon(float x, float y, float[] points, Color4f color) {
+        int corners = points.length / 2;
+        int vertex = reserve(GL11.GL_LINES, corners, corners * 2);
+        for (int i = 0; i < points.length; i += 2) {
+            putVertex(x + points[i], y + points[i + 1], color);
+        }
+        for (int i = 0; i < corners - 1; i++) {
+            indices.put((short) (vertex + i)).put((short) (vertex + i + 1));
+        }
+        indices.put((short) (vertex + corners - 1)).put((short) vertex);
+    }
+
+    private void putVertex(float x, float y, Color4f color) {
+        vertices.put(transform.transformX(x, y)).put(transform.transformY(x, y)).put(color.r).put(color.g).put(color.b).put(color.a);
+    }
+
+    @Override
+    protected void beginState() {
+        GLState.disable(GL11.GL_TEXTURE_2D);
+    }
+
+    @Override
+    protected void enableArrays(int stride, long offset) {
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glVertexPointer(2, GL11.GL_FLOAT, stride, offset);
+        GL11.glColorPointer(4, GL11.GL_FLOAT, stride, offset + 2 * Float.BYTES);
+    }
+
+    @Override
+    protected void disableArrays() {
+        GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+    }
+
+    @Override
+    protected void immediateVertex(int offset) {
+        GLState.color(vertices.get(offset + 2), vertices.get(offset + 3), vertices.get(offset + 4), vertices.get(offset + 5));
+        GL11.glVertex2f(vertices.get(offset), vertices.get(offset + 1));
+    }
+}
@@ -0,0 +1,109 @@
+package net.scriptgate.engine.lwjgl.batch;
+
+import net.scriptgate.common.Color4f;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import org.lwjgl.opengl.GL11;
+
+/**
+ * Collects textured quads and draws every run of quads sharing the same texture with a single draw call.
+ */
+public class SpriteBatch extends VertexBatch {
+
+    /**
+     * The number of floats describing a quad in {@link #draw(int, float[], int, int, float, float, Color4f)}.
+     */
+    public static final int FLOATS_PER_QUAD = 8;
+
+    private static final int NO_TEXTURE = -1;
+
+    //x, y, s, t, r, g, b, a
+    private static final int FLOATS_PER_VERTEX = 8;
+    private static final int VERTICES_PER_SPRITE = 4;
+    private static final int INDICES_PER_SPRITE = 6;
+
+    private int texture = NO_TEXTURE;
+
+    public SpriteBatch() {
+        this(2048);
+    }
+
+    public SpriteBatch(int capacity) {
+        super(FLOATS_PER_VERTEX, capacity * VERTICES_PER_SPRITE, capacity * INDICES_PER_SPRITE);
+    }
+
+    //@formatter:off
+    public void draw(int textureId,
+                     float x0, float y0, float x1, float y1,
+                     float s0, float t0, float s1, float t1,
+                     Color4f color) {
+        setState(textureId);
+        int vertex = reserve(GL11.GL_TRIANGLES, VERTICES_PER_SPRITE, INDICES_PER_SPRITE);
+        putVertex(x0, y0, s0, t0, color);
+        putVertex(x1, y0, s1, t0, color);
+        putVertex(x1, y1, s1, t1, color);
+        putVertex(x0, y1, s0, t1, color);
+        indices.put((short) vertex).put((short) (vertex + 1)).put((short) (vertex + 2));
+        indices.put((short) (vertex + 2)).put((short) (vertex + 3)).put((short) vertex);
+    }
+    //@formatter:on
+
+    /**
+     * Draws a run of prepared quads sharing a texture, each stored as {@code x0, y0, x1, y1, s0, t0, s1, t1},
+     * translated by {@code x} and {@code y}.
+     */
+    public void draw(int textureId, float[] quads, int firstQuad, int quadCount, float x, float y, Color4f color) {
+        for (int quad = 0, offset = firstQuad * FLOATS_PER_QUAD; quad < quadCount; quad++, offset += FLOATS_PER_QUAD) {
+            draw(textureId,
+                    x + quads[offset], y + quads[offset + 1], x + quads[offset + 2], y + quads[offset + 3],
+                    quads[offset + 4], quads[offset + 5], quads[offset + 6], quads[offset + 7],
+                    color);
+        }
+    }
+
+    @Override
+    public int getState() {
+        return texture;
+    }
+
+    @Override
+    public void setState(int textureId) {
+        if (textureId != texture) {
+            flush();
+            texture = textureId;
+        }
+    }
+
+    private void putVertex(float x, float y, float s, float t, Color4f color) {
+        vertices.put(transform.transformX(x, y)).put(transform.transformY(x, y)).put(s).put(t).put(color.r).put(color.g).put(color.b).put(color.a);
+    }
+
+    @Override
+    protected void beginState() {
+        GLState.enable(GL11.GL_TEXTURE_2D);
+        GLState.bindTexture(texture);
+    }
+
+    @Override
+    protected void enableArrays(int stride, long offset) {
+        GL11.glEnableClientState(GL11.GL_VERTEX_ARRAY);
+        GL11.glEnableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glEnableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glVertexPointer(2, GL11.GL_FLOAT, stride, offset);
+        GL11.glTexCoordPointer(2, GL11.GL_FLOAT, stride, offset + 2 * Float.BYTES);
+        GL11.glColorPointer(4, GL11.GL_FLOAT, stride, offset + 4 * Float.BYTES);
+    }
+
+    @Override
+    protected void disableArrays() {
+        GL11.glDisableClientState(GL11.GL_COLOR_ARRAY);
+        GL11.glDisableClientState(GL11.GL_TEXTURE_COORD_ARRAY);
+        GL11.glDisableClientState(GL11.GL_VERTEX_ARRAY);
+    }
+
+    @Override
+    protected void immediateVertex(int offset) {
+        GLState.color(vertices.get(offset + 4), vertices.get(offset + 5), vertices.get(offset + 6), vertices.get(offset + 7));
+        GL11.glTexCoord2f(vertices.get(offset + 2), vertices.get(offset + 3));
+        GL11.glVertex2f(vertices.get(offset), vertices.get(offset + 1));
+    }
+}
@@ -0,0 +1,267 @@
+package net.scriptgate.engine.lwjgl.batch;
+
+import net.scriptgate.engine.lwjgl.geometry.TransformStack;
+import net.scriptgate.engine.lwjgl.gl.GpuProfiler;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import net.scriptgate.engine.lwjgl.gl.StreamBuffer;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Indexed vertices streamed into a {@link StreamBuffer} and drawn with one {@code glDrawElements} call
+ * until the primitive type or the state of the subclass changes.
+ * <p>
+ * Vertices are written already transformed by the {@link TransformStack}, so a batch does not depend on
+ * the matrix stack and changing the transform between two primitives does not require a flush.
+ */
+public abstract class VertexBatch {
+
+    private static final int NO_MODE = -1;
+    private static final int[] POSITION_OFFSETS = {0};
+    //indices are unsigned shorts
+    private static final int MAX_VERTICES = 65536;
+
+    private final int floatsPerVertex;
+    private final int maxVertices;
+
+    protected final FloatBuffer vertices;
+    protected final ShortBuffer indices;
+    protected TransformStack transform = new TransformStack();
+
+    private StreamBuffer streamBuffer;
+    private boolean immediateMode;
+    private GpuProfiler profiler;
+    private int profilerScope;
+
+    private int mode = NO_MODE;
+    private int vertexCount;
+
+    protected VertexBatch(int floatsPerVertex, int maxVertices, int maxIndices) {
+        if (maxVertices <= 0 || maxVertices > MAX_VERTICES) {
+            throw new IllegalArgumentException("Vertex batch capacity must be between 1 and " + MAX_VERTICES + ": " + maxVertices);
+        }
+        this.floatsPerVertex = floatsPerVertex;
+        this.maxVertices = maxVertices;
+        this.vertices = BufferUtils.createFloatBuffer(maxVertices * floatsPerVertex);
+        this.indices = BufferUtils.createShortBuffer(maxIndices);
+    }
+
+    /**
+     * @param streamBuffer the buffer the vertices and indices are written to when they are drawn, may be shared with other batches
+     */
+    public void initialize(StreamBuffer streamBuffer) {
+        if (!GL.getCapabilities().OpenGL15) {
+            immediateMode = true;
+            return;
+        }
+        this.streamBuffer = streamBuffer;
+    }
+
+    /**
+     * @param transform applied to every vertex as it is written, usually shared with the renderer
+     */
+    public void setTransform(TransformStack transform) {
+        this.transform = transform;
+    }
+
+    /**
+     * @param profiler measures every flush of this batch in the given scope, null to stop measuring
+     */
+    public void setProfiler(GpuProfiler profiler, int scope) {
+        this.profiler = profiler;
+        this.profilerScope = scope;
+    }
+
+    /**
+     * Sends the buffered vertices through {@code glBegin}/{@code glEnd} instead of a vertex buffer object.
+     * This is always the case when the context does not support OpenGL 1.5.
+     */
+    public void setImmediateMode(boolean immediateMode) {
+        flush();
+        this.immediateMode = immediateMode || streamBuffer == null;
+    }
+
+    public boolean isImmediateMode() {
+        return immediateMode;
+    }
+
+    public boolean isEmpty() {
+        return indices.position() == 0;
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * @return the state shared by every buffered primitive, besides the primitive type.
+     */
+    public int getState() {
+        return 0;
+    }
+
+    /**
+     * Changes the state shared by every buffered primitive, flushing first when it differs.
+     */
+    public void setState(int state) {
+    }
+
+    int getFloatsPerVertex() {
+        return floatsPerVertex;
+    }
+
+    /**
+     * @return the offsets of the x coordinates in a vertex, each followed by its y coordinate.
+     */
+    int[] getPositionOffsets() {
+        return POSITION_OFFSETS;
+    }
+
+    int getVertexFloats() {
+        return vertices.position();
+    }
+
+    int getIndexCount() {
+        return indices.position();
+    }
+
+    /**
+     * Moves the buffered vertices and indices into the given arrays instead of drawing them.
+     */
+    void drain(float[] vertexTarget, int vertexOffset, short[] indexTarget, int indexOffset) {
+        vertices.flip();
+        vertices.get(vertexTarget, vertexOffset, vertices.limit());
+        vertices.clear();
+        indices.flip();
+        indices.get(indexTarget, indexOffset, indices.limit());
+        indices.clear();
+        vertexCount = 0;
+    }
+
+    /**
+     * Buffers vertices and indices taken out by {@link #drain(float[], int, short[], int) drain}.
+     * The indices are relative to the first of the given vertices.
+     */
+    void append(int mode, float[] vertexData, int vertexOffset, int vertexFloats, short[] indexData, int indexOffset, int indexCount) {
+        int firstVertex = reserve(mode, vertexFloats / floatsPerVertex, indexCount);
+        vertices.put(vertexData, vertexOffset, vertexFloats);
+        for (int i = indexOffset; i < indexOffset + indexCount; i++) {
+            indices.put((short) (firstVertex + (indexData[i] & 0xFFFF)));
+        }
+    }
+
+    /**
+     * Makes room for a primitive, flushing first when the primitive type changes or the batch is full.
+     *
+     * @param mode        the primitive type, e.g. {@code GL_TRIANGLES} or {@code GL_LINES}
+     * @param vertexCount the number of vertices that will be written
+     * @param indexCount  the number of indices that will be written
+     * @return the index of the first vertex that will be written
+     */
+    protected int reserve(int mode, int vertexCount, int indexCount) {
+        if (mode != this.mode
+                || this.vertexCount + vertexCount > maxVertices
+                || indices.remaining() < indexCount) {
+            flush();
+            this.mode = mode;
+        }
+        int firstVertex = this.vertexCount;
+        this.vertexCount += vertexCount;
+        return firstVertex;
+    }
+
+    public void flush() {
+        if (isEmpty()) {
+            return;
+        }
+        vertices.flip();
+        indices.flip();
+
+        if (profiler != null) {
+            profiler.begin(profilerScope);
+        }
+        beginState();
+        if (immediateMode) {
+            drawImmediate();
+        } else {
+            drawVertexBuffer();
+        }
+        if (profiler != null) {
+            profiler.end(profilerScope);
+        }
+
+        vertices.clear();
+        indices.clear();
+        vertexCount = 0;
+    }
+
+    protected StreamBuffer getStreamBuffer() {
+        return streamBuffer;
+    }
+
+    /**
+     * Draws the buffered vertices, which are flipped and ready to be read, from the stream buffer.
+     */
+    protected void drawVertexBuffer() {
+//      the vertices and indices have to end up in the same region of the stream buffer
+        streamBuffer.reserve(vertices.remaining() * Float.BYTES + indices.remaining() * Short.BYTES);
+        long vertexOffset = streamBuffer.put(vertices);
+        long indexOffset = streamBuffer.put(indices);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, streamBuffer.getBufferId());
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, streamBuffer.getBufferId());
+
+        enableArrays(floatsPerVertex * Float.BYTES, vertexOffset);
+        GL11.glDrawElements(mode, indices.limit(), GL11.GL_UNSIGNED_SHORT, indexOffset);
+        GLState.countDrawCall(indices.limit());
+        disableArrays();
+//      the color array leaves the current color undefined
+        GLState.invalidateColor();
+
+        GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+    }
+
+    private void drawImmediate() {
+        GL11.glBegin(mode);
+        {
+            for (int i = 0; i < indices.limit(); i++) {
+                int vertex = indices.get(i) & 0xFFFF;
+                immediateVertex(vertex * floatsPerVertex);
+            }
+        }
+        GL11.glEnd();
+        GLState.countDrawCall(indices.limit());
+    }
+
+    /**
+     * Called before the buffered vertices are drawn, to set up the state shared by all of them.
+     */
+    protected void beginState() {
+    }
+
+    /**
+     * Enables and points the client-side arrays at the bound vertex buffer object.
+     *
+     * @param stride the size of a vertex in bytes
+     * @param offset the offset of the first vertex in the vertex buffer object, in bytes
+     */
+    protected abstract void enableArrays(int stride, long offset);
+
+    protected abstract void disableArrays();
+
+    /**
+     * Sends a single buffered vertex between {@code glBegin} and {@code glEnd}.
+     *
+     * @param offset the offset of the vertex in {@link #vertices}
+     */
+    protected abstract void immediateVertex(int offset);
+
+    public void destroy() {
+        streamBuffer = null;
+    }
+}
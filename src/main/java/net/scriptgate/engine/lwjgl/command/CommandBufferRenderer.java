@@ -0,0 +1,466 @@
+package net.scriptgate.engine.lwjgl.command;
+
+import net.scriptgate.common.Point;
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.Renderer;
+import net.scriptgate.engine.lwjgl.geometry.Transformable;
+import net.scriptgate.engine.lwjgl.text.FontSelectable;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import net.scriptgate.engine.lwjgl.text.TextRenderer;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Records every {@link Renderer} call in a compact off-heap command stream instead of drawing it,
+ * so a frame can be built away from the GL thread and {@link #replay(Renderer) replayed} later.
+ * <p>
+ * Every command is an opcode followed by its arguments. Strings are kept in a reference table
+ * and written to the stream as an index into that table. Other character sequences may change after they are drawn,
+ * their characters are copied into the stream.
+ */
+public class CommandBufferRenderer implements Renderer, Transformable, FontSelectable, TextRenderer {
+
+    static final byte DRAW_IMAGE = 1;
+    static final byte DRAW_IMAGE_REGION = 2;
+    static final byte DRAW_RECT = 3;
+    static final byte FILL_RECT = 4;
+    static final byte DRAW_LINE = 5;
+    static final byte DRAW_CIRCLE = 6;
+    static final byte FILL_CIRCLE = 7;
+    static final byte DRAW_TEXT = 8;
+    static final byte SET_COLOR = 9;
+    static final byte SET_COLOR_WITH_ALPHA = 10;
+    static final byte SET_OPACITY = 11;
+    static final byte TRANSLATE = 12;
+    static final byte DRAW_DRAWABLE = 13;
+    static final byte PUSH_TRANSFORM = 14;
+    static final byte POP_TRANSFORM = 15;
+    static final byte SCALE = 16;
+    static final byte ROTATE = 17;
+    static final byte SET_FONT = 18;
+    static final byte DRAW_CHARACTERS = 19;
+
+    private final TextMeasurer textMeasurer;
+
+    private ByteBuffer commands;
+    private Object[] references;
+    private int referenceCount;
+    private int commandCount;
+//  the font selected when the recorded commands are replayed up to here, to measure text with
+    private int font = Fonts.DEFAULT;
+
+    private final Point position = new Point(0, 0);
+    private final Point offset = new Point(0, 0);
+    private final Point size = new Point(0, 0);
+    private final RecordedText recordedText = new RecordedText();
+    private final Rectangle textBounds = new Rectangle(0, 0, 0, 0);
+
+    /**
+     * @param textMeasurer the renderer used to measure text, as {@link #drawText(int, int, String) drawText}
+     *                     has to return the bounds of the text before it is drawn.
+     */
+    public CommandBufferRenderer(Renderer textMeasurer) {
+        this(measurer(textMeasurer));
+    }
+
+    public CommandBufferRenderer(Renderer textMeasurer, int initialCapacity) {
+        this(measurer(textMeasurer), initialCapacity);
+    }
+
+    private static TextMeasurer measurer(Renderer renderer) {
+        if (renderer instanceof FontSelectable) {
+            FontSelectable measurer = (FontSelectable) renderer;
+            return new TextMeasurer() {
+                @Override
+                public Rectangle getBounds(int font, int x, int y, String text) {
+                    return measurer.getBounds(font, x, y, text);
+                }
+
+                @Override
+                public void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds) {
+                    measurer.getBounds(font, x, y, text, bounds);
+                }
+            };
+        }
+//      only the default font can be replayed on it
+        return (font, x, y, text) -> renderer.getBounds(x, y, text);
+    }
+
+    /**
+     * @param textMeasurer measures text without a renderer, for buffers recorded on another thread than the one drawing
+     */
+    public CommandBufferRenderer(TextMeasurer textMeasurer) {
+        this(textMeasurer, 64 * 1024);
+    }
+
+    public CommandBufferRenderer(TextMeasurer textMeasurer, int initialCapacity) {
+        this.textMeasurer = textMeasurer;
+        this.commands = BufferUtils.createByteBuffer(initialCapacity);
+        this.references = new Object[256];
+    }
+
+    @Override
+    public void drawImage(int x, int y, String path) {
+        begin(DRAW_IMAGE, 12);
+        commands.putInt(x).putInt(y).putInt(reference(path));
+    }
+
+    @Override
+    public void drawImage(String imagePath, Point position, Point offset, Point size) {
+        begin(DRAW_IMAGE_REGION, 28);
+        commands.putInt(reference(imagePath))
+                .putInt(position.x).putInt(position.y)
+                .putInt(offset.x).putInt(offset.y)
+                .putInt(size.x).putInt(size.y);
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height) {
+        writeRectangle(DRAW_RECT, x, y, width, height);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        writeRectangle(FILL_RECT, x, y, width, height);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        writeRectangle(DRAW_LINE, x1, y1, x2, y2);
+    }
+
+    private void writeRectangle(byte opcode, int a, int b, int c, int d) {
+        begin(opcode, 16);
+        commands.putInt(a).putInt(b).putInt(c).putInt(d);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int radius) {
+        writeCircle(DRAW_CIRCLE, x, y, radius);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int radius) {
+        writeCircle(FILL_CIRCLE, x, y, radius);
+    }
+
+    private void writeCircle(byte opcode, int x, int y, int radius) {
+        begin(opcode, 12);
+        commands.putInt(x).putInt(y).putInt(radius);
+    }
+
+    @Override
+    public Rectangle drawText(int x, int y, String text) {
+        begin(DRAW_TEXT, 12);
+        commands.putInt(x).putInt(y).putInt(reference(text));
+        return textMeasurer.getBounds(font, x, y, text);
+    }
+
+    @Override
+    public Rectangle getBounds(int x, int y, String text) {
+        return textMeasurer.getBounds(font, x, y, text);
+    }
+
+    @Override
+    public Rectangle getBounds(int font, int x, int y, String text) {
+        return textMeasurer.getBounds(font, x, y, text);
+    }
+
+    /**
+     * Records the characters of the text rather than a reference, so it can be reused for the next frame.
+     */
+    @Override
+    public void drawText(int x, int y, CharSequence text, Rectangle bounds) {
+        int length = text.length();
+        begin(DRAW_CHARACTERS, 12 + length * Character.BYTES);
+        commands.putInt(x).putInt(y).putInt(length);
+        for (int i = 0; i < length; i++) {
+            commands.putChar(text.charAt(i));
+        }
+        textMeasurer.getBounds(font, x, y, text, bounds);
+    }
+
+    @Override
+    public void getBounds(int x, int y, CharSequence text, Rectangle bounds) {
+        textMeasurer.getBounds(font, x, y, text, bounds);
+    }
+
+    @Override
+    public void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds) {
+        textMeasurer.getBounds(font, x, y, text, bounds);
+    }
+
+    /**
+     * Font commands can only be replayed on a renderer that is {@link FontSelectable} as well.
+     */
+    @Override
+    public void setFont(int font) {
+        if (!Fonts.isRegistered(font)) {
+            throw new IllegalArgumentException("Unknown font: " + font);
+        }
+        begin(SET_FONT, 4);
+        commands.putInt(font);
+        this.font = font;
+    }
+
+    @Override
+    public int getFont() {
+        return font;
+    }
+
+    @Override
+    public void setColor(float r, float g, float b) {
+        begin(SET_COLOR, 12);
+        commands.putFloat(r).putFloat(g).putFloat(b);
+    }
+
+    @Override
+    public void setColor(float a, float r, float g, float b) {
+        begin(SET_COLOR_WITH_ALPHA, 16);
+        commands.putFloat(a).putFloat(r).putFloat(g).putFloat(b);
+    }
+
+    @Override
+    public void setOpacity(float a) {
+        begin(SET_OPACITY, 4);
+        commands.putFloat(a);
+    }
+
+    @Override
+    public void translate(int x, int y) {
+        begin(TRANSLATE, 8);
+        commands.putInt(x).putInt(y);
+    }
+
+    /**
+     * Transform commands can only be replayed on a renderer that is {@link Transformable} as well.
+     */
+    @Override
+    public void pushTransform() {
+        begin(PUSH_TRANSFORM, 0);
+    }
+
+    @Override
+    public void popTransform() {
+        begin(POP_TRANSFORM, 0);
+    }
+
+    @Override
+    public void scale(float x, float y) {
+        begin(SCALE, 8);
+        commands.putFloat(x).putFloat(y);
+    }
+
+    @Override
+    public void rotate(float radians) {
+        begin(ROTATE, 4);
+        commands.putFloat(radians);
+    }
+
+    /**
+     * Records a call to {@link Drawable#draw(Renderer, int, int)}, which is made with the renderer
+     * the buffer is replayed on.
+     */
+    public void draw(Drawable drawable, int x, int y) {
+        begin(DRAW_DRAWABLE, 12);
+        commands.putInt(reference(drawable)).putInt(x).putInt(y);
+    }
+
+    private void begin(byte opcode, int argumentSize) {
+        if (commands.remaining() < argumentSize + 1) {
+            grow(argumentSize + 1);
+        }
+        commands.put(opcode);
+        commandCount++;
+    }
+
+    private void grow(int required) {
+        int capacity = commands.capacity();
+        while (capacity - commands.position() < required) {
+            capacity *= 2;
+        }
+        ByteBuffer grown = BufferUtils.createByteBuffer(capacity);
+        commands.flip();
+        grown.put(commands);
+        commands = grown;
+    }
+
+    private int reference(Object reference) {
+        if (referenceCount == references.length) {
+            references = Arrays.copyOf(references, referenceCount * 2);
+        }
+        references[referenceCount] = reference;
+        return referenceCount++;
+    }
+
+    /**
+     * Sends every recorded command, in order, to the given renderer.
+     */
+    public void replay(Renderer renderer) {
+        int end = commands.position();
+        int index = 0;
+        while (index < end) {
+            index = replay(renderer, index);
+        }
+    }
+
+    /**
+     * Sends the command starting at the given index in the stream to the given renderer.
+     *
+     * @return the index of the next command
+     */
+    int replay(Renderer renderer, int index) {
+        ByteBuffer commands = this.commands;
+        byte opcode = commands.get(index++);
+        switch (opcode) {
+            case DRAW_IMAGE:
+                renderer.drawImage(commands.getInt(index), commands.getInt(index + 4), (String) references[commands.getInt(index + 8)]);
+                return index + 12;
+            case DRAW_IMAGE_REGION:
+                position.x = commands.getInt(index + 4);
+                position.y = commands.getInt(index + 8);
+                offset.x = commands.getInt(index + 12);
+                offset.y = commands.getInt(index + 16);
+                size.x = commands.getInt(index + 20);
+                size.y = commands.getInt(index + 24);
+                renderer.drawImage((String) references[commands.getInt(index)], position, offset, size);
+                return index + 28;
+            case DRAW_RECT:
+                renderer.drawRect(commands.getInt(index), commands.getInt(index + 4), commands.getInt(index + 8), commands.getInt(index + 12));
+                return index + 16;
+            case FILL_RECT:
+                renderer.fillRect(commands.getInt(index), commands.getInt(index + 4), commands.getInt(index + 8), commands.getInt(index + 12));
+                return index + 16;
+            case DRAW_LINE:
+                renderer.drawLine(commands.getInt(index), commands.getInt(index + 4), commands.getInt(index + 8), commands.getInt(index + 12));
+                return index + 16;
+            case DRAW_CIRCLE:
+                renderer.drawCircle(commands.getInt(index), commands.getInt(index + 4), commands.getInt(index + 8));
+                return index + 12;
+            case FILL_CIRCLE:
+                renderer.fillCircle(commands.getInt(index), commands.getInt(index + 4), commands.getInt(index + 8));
+                return index + 12;
+            case DRAW_TEXT:
+                renderer.drawText(commands.getInt(index), commands.getInt(index + 4), (String) references[commands.getInt(index + 8)]);
+                return index + 12;
+            case SET_COLOR:
+                renderer.setColor(commands.getFloat(index), commands.getFloat(index + 4), commands.getFloat(index + 8));
+                return index + 12;
+            case SET_COLOR_WITH_ALPHA:
+                renderer.setColor(commands.getFloat(index), commands.getFloat(index + 4), commands.getFloat(index + 8), commands.getFloat(index + 12));
+                return index + 16;
+            case SET_OPACITY:
+                renderer.setOpacity(commands.getFloat(index));
+                return index + 4;
+            case TRANSLATE:
+                renderer.translate(commands.getInt(index), commands.getInt(index + 4));
+                return index + 8;
+            case DRAW_DRAWABLE:
+                ((Drawable) references[commands.getInt(index)]).draw(renderer, commands.getInt(index + 4), commands.getInt(index + 8));
+                return index + 12;
+            case PUSH_TRANSFORM:
+                transformable(renderer).pushTransform();
+                return index;
+            case POP_TRANSFORM:
+                transformable(renderer).popTransform();
+                return index;
+            case SCALE:
+                transformable(renderer).scale(commands.getFloat(index), commands.getFloat(index + 4));
+                return index + 8;
+            case ROTATE:
+                transformable(renderer).rotate(commands.getFloat(index));
+                return index + 4;
+            case SET_FONT:
+                fontSelectable(renderer).setFont(commands.getInt(index));
+                return index + 4;
+            case DRAW_CHARACTERS:
+                int length = commands.getInt(index + 8);
+                recordedText.set(index + 12, length);
+                if (renderer instanceof TextRenderer) {
+                    ((TextRenderer) renderer).drawText(commands.getInt(index), commands.getInt(index + 4), recordedText, textBounds);
+                } else {
+                    renderer.drawText(commands.getInt(index), commands.getInt(index + 4), recordedText.toString());
+                }
+                return index + 12 + length * Character.BYTES;
+            default:
+                throw new IllegalStateException(String.format("Unknown render command 0x%X at %d", opcode, index - 1));
+        }
+    }
+
+    private static Transformable transformable(Renderer renderer) {
+        if (!(renderer instanceof Transformable)) {
+            throw new IllegalStateException("Cannot replay transforms on " + renderer.getClass().getName());
+        }
+        return (Transformable) renderer;
+    }
+
+    private static FontSelectable fontSelectable(Renderer renderer) {
+        if (!(renderer instanceof FontSelectable)) {
+            throw new IllegalStateException("Cannot replay fonts on " + renderer.getClass().getName());
+        }
+        return (FontSelectable) renderer;
+    }
+
+    /**
+     * Forgets every recorded command, keeping the allocated memory for the next frame.
+     * The next frame starts with the default font, as renderers select it again when a frame ends.
+     */
+    public void clear() {
+        commands.clear();
+        font = Fonts.DEFAULT;
+        Arrays.fill(references, 0, referenceCount, null);
+        referenceCount = 0;
+        commandCount = 0;
+    }
+
+    public int getCommandCount() {
+        return commandCount;
+    }
+
+    /**
+     * @return the size of the recorded command stream in bytes.
+     */
+    public int size() {
+        return commands.position();
+    }
+
+    /**
+     * The characters of a {@link #DRAW_CHARACTERS} command, read from the stream while it is replayed.
+     */
+    private final class RecordedText implements CharSequence {
+
+        private int offset;
+        private int length;
+
+        void set(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return commands.getChar(offset + index * Character.BYTES);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            char[] characters = new char[length];
+            for (int i = 0; i < length; i++) {
+                characters[i] = charAt(i);
+            }
+            return new String(characters);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package net.scriptgate.engine.lwjgl.command;
+
+import net.scriptgate.engine.Renderer;
+
+/**
+ * Something that draws itself with a {@link Renderer}, at a position chosen by the caller.
+ */
+public interface Drawable {
+
+    void draw(Renderer renderer, int x, int y);
+}
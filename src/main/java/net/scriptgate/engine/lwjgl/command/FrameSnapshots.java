@@ -0,0 +1,94 @@
+package net.scriptgate.engine.lwjgl.command;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands frames recorded into {@link CommandBufferRenderer}s from the thread that records them to the thread that draws them.
+ * <p>
+ * Three buffers rotate between the two threads: the one being recorded, the one being drawn, and the latest
+ * complete frame in between. Publishing a frame swaps the recorded buffer with the one in between, taking a frame
+ * swaps the drawn buffer with it, so neither thread waits for the other to finish with a buffer.
+ * A frame is only published once the previous one was taken, so the recording thread stays at most one frame
+ * ahead of the drawing thread instead of recording frames that are never drawn.
+ */
+public class FrameSnapshots {
+
+    private static final int INDEX = 3;
+    private static final int FRESH = 4;
+
+    private final CommandBufferRenderer[] buffers = new CommandBufferRenderer[3];
+    //the index of the buffer in between, with FRESH set when it has not been taken yet
+    private final AtomicInteger latest = new AtomicInteger(1);
+
+    private int recording = 0;
+    private int drawing = 2;
+
+    private volatile Thread recordingThread;
+    private volatile Thread drawingThread;
+    private volatile boolean closed;
+
+    public FrameSnapshots(TextMeasurer textMeasurer) {
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = new CommandBufferRenderer(textMeasurer);
+        }
+    }
+
+    /**
+     * Called by the recording thread.
+     *
+     * @return an empty buffer to record the next frame in
+     */
+    public CommandBufferRenderer beginFrame() {
+        CommandBufferRenderer buffer = buffers[recording];
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Called by the recording thread once the frame returned by {@link #beginFrame()} is complete,
+     * waits until the previously published frame was taken or the snapshots are {@link #close() closed}.
+     */
+    public void publish() {
+        recordingThread = Thread.currentThread();
+        while ((latest.get() & FRESH) != 0 && !closed) {
+            LockSupport.park(this);
+        }
+        recording = latest.getAndSet(recording | FRESH) & INDEX;
+        unpark(drawingThread);
+    }
+
+    /**
+     * Called by the drawing thread, waits until a frame is published that was not taken yet.
+     * The buffer stays valid until the next call.
+     *
+     * @return the latest published frame, or null once the snapshots are {@link #close() closed}
+     */
+    public CommandBufferRenderer take() {
+        drawingThread = Thread.currentThread();
+        while ((latest.get() & FRESH) == 0) {
+            if (closed) {
+                return null;
+            }
+            LockSupport.park(this);
+        }
+        drawing = latest.getAndSet(drawing) & INDEX;
+        unpark(recordingThread);
+        return buffers[drawing];
+    }
+
+    /**
+     * Makes both threads stop waiting for each other.
+     */
+    public void close() {
+        closed = true;
+        unpark(recordingThread);
+        unpark(drawingThread);
+    }
+
+    private static void unpark(Thread waiting) {
+        if (waiting != null) {
+            LockSupport.unpark(waiting);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package net.scriptgate.engine.lwjgl.command;
+
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.lwjgl.text.FontSelectable;
+
+/**
+ * Measures text the way a renderer would draw it in a font, see {@link FontSelectable#getBounds(int, int, int, String)}.
+ */
+@FunctionalInterface
+public interface TextMeasurer {
+
+    /**
+     * @param font a handle returned by {@link net.scriptgate.engine.lwjgl.text.Fonts#register}
+     */
+    Rectangle getBounds(int font, int x, int y, String text);
+
+    /**
+     * Measures text into the given bounds, measurers that can do so without allocating override it.
+     */
+    default void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds) {
+        Rectangle measured = getBounds(font, x, y, text.toString());
+        bounds.x = measured.x;
+        bounds.y = measured.y;
+        bounds.width = measured.width;
+        bounds.height = measured.height;
+    }
+}
@@ -0,0 +1,95 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+/**
+ * Approximates circles by regular polygons with just enough segments to stay within a tolerance
+ * of the real circle, built from precomputed unit circles.
+ * <p>
+ * Tessellations of small, integer radii are cached, as those are the ones drawn over and over.
+ */
+public class CircleTessellator {
+
+    private static final int MIN_SEGMENTS = 8;
+    private static final int MAX_SEGMENTS = 360;
+    private static final int CACHED_RADII = 1024;
+
+    private final float tolerance;
+    private final float[][] unitCircles;
+    private final float[][] circles;
+
+    public CircleTessellator() {
+        this(0.25f);
+    }
+
+    /**
+     * @param tolerance the maximum distance in pixels between the polygon and the circle it approximates.
+     */
+    public CircleTessellator(float tolerance) {
+        if (tolerance <= 0) {
+            throw new IllegalArgumentException("Tolerance must be positive: " + tolerance);
+        }
+        this.tolerance = tolerance;
+        this.unitCircles = new float[MAX_SEGMENTS + 1][];
+        this.circles = new float[CACHED_RADII][];
+    }
+
+    /**
+     * The number of segments needed so the sagitta of every segment, {@code r * (1 - cos(PI / n))},
+     * stays within the tolerance.
+     */
+    public int getSegments(float radius) {
+        radius = Math.abs(radius);
+        if (radius <= tolerance) {
+            return MIN_SEGMENTS;
+        }
+        int segments = (int) Math.ceil(Math.PI / Math.acos(1 - (double) tolerance / radius));
+        return Math.max(MIN_SEGMENTS, Math.min(MAX_SEGMENTS, segments));
+    }
+
+    /**
+     * @return the points of the polygon relative to the center of the circle, as interleaved x and y coordinates.
+     * The returned array is shared and must not be modified.
+     */
+    public float[] tessellate(int radius) {
+        return tessellate(radius, 1);
+    }
+
+    /**
+     * @param scale the largest scale of the transform the circle is drawn with, the segments are chosen
+     *              for the radius on screen while the points keep the given radius
+     */
+    public float[] tessellate(int radius, float scale) {
+        int segments = getSegments(radius * scale);
+        if (radius >= 0 && radius < CACHED_RADII) {
+            float[] circle = circles[radius];
+//          a radius is usually drawn at one scale, another scale replaces the cached circle
+            if (circle == null || circle.length != segments * 2) {
+                circle = scale(getUnitCircle(segments), radius);
+                circles[radius] = circle;
+            }
+            return circle;
+        }
+        return scale(getUnitCircle(segments), radius);
+    }
+
+    private float[] getUnitCircle(int segments) {
+        float[] unitCircle = unitCircles[segments];
+        if (unitCircle == null) {
+            unitCircle = new float[segments * 2];
+            for (int i = 0; i < segments; i++) {
+                double angle = 2 * Math.PI * i / segments;
+                unitCircle[i * 2] = (float) Math.cos(angle);
+                unitCircle[i * 2 + 1] = (float) Math.sin(angle);
+            }
+            unitCircles[segments] = unitCircle;
+        }
+        return unitCircle;
+    }
+
+    private static float[] scale(float[] unitCircle, float radius) {
+        float[] circle = new float[unitCircle.length];
+        for (int i = 0; i < unitCircle.length; i++) {
+            circle[i] = unitCircle[i] * radius;
+        }
+        return circle;
+    }
+}
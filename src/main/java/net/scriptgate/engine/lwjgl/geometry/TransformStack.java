@@ -0,0 +1,126 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+import java.util.Arrays;
+
+/**
+ * A stack of 2D affine transforms kept in plain floats, applied to vertices as they are written
+ * so changing the transform never requires drawing what was collected so far.
+ * <p>
+ * The current transform maps (x, y) to (m00 * x + m01 * y + m02, m10 * x + m11 * y + m12).
+ */
+public class TransformStack {
+
+    private static final int FLOATS_PER_TRANSFORM = 6;
+
+    private float m00 = 1, m01, m02;
+    private float m10, m11 = 1, m12;
+
+    private float[] saved = new float[8 * FLOATS_PER_TRANSFORM];
+    private int depth;
+
+    /**
+     * Saves the current transform, to be restored by {@link #pop()}.
+     */
+    public void push() {
+        if ((depth + 1) * FLOATS_PER_TRANSFORM > saved.length) {
+            saved = Arrays.copyOf(saved, saved.length * 2);
+        }
+        int offset = depth * FLOATS_PER_TRANSFORM;
+        saved[offset] = m00;
+        saved[offset + 1] = m01;
+        saved[offset + 2] = m02;
+        saved[offset + 3] = m10;
+        saved[offset + 4] = m11;
+        saved[offset + 5] = m12;
+        depth++;
+    }
+
+    public void pop() {
+        if (depth == 0) {
+            throw new IllegalStateException("Cannot pop a transform that was not pushed");
+        }
+        depth--;
+        int offset = depth * FLOATS_PER_TRANSFORM;
+        m00 = saved[offset];
+        m01 = saved[offset + 1];
+        m02 = saved[offset + 2];
+        m10 = saved[offset + 3];
+        m11 = saved[offset + 4];
+        m12 = saved[offset + 5];
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public void setIdentity() {
+        m00 = 1;
+        m01 = 0;
+        m02 = 0;
+        m10 = 0;
+        m11 = 1;
+        m12 = 0;
+    }
+
+    public void translate(float x, float y) {
+        m02 += m00 * x + m01 * y;
+        m12 += m10 * x + m11 * y;
+    }
+
+    public void scale(float x, float y) {
+        m00 *= x;
+        m10 *= x;
+        m01 *= y;
+        m11 *= y;
+    }
+
+    /**
+     * @param radians clockwise on screen, since the y-axis points down
+     */
+    public void rotate(float radians) {
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float n00 = m00 * cos + m01 * sin;
+        float n01 = m01 * cos - m00 * sin;
+        float n10 = m10 * cos + m11 * sin;
+        float n11 = m11 * cos - m10 * sin;
+        m00 = n00;
+        m01 = n01;
+        m10 = n10;
+        m11 = n11;
+    }
+
+    /**
+     * @return true when rectangles stay rectangles with horizontal and vertical edges, so only translated and scaled.
+     */
+    public boolean isAxisAligned() {
+        return m01 == 0 && m10 == 0;
+    }
+
+    /**
+     * @return the most a length is stretched by the transform, in whichever direction, to size details to the screen
+     */
+    public float getMaxScale() {
+//      the largest singular value of the linear part
+        float sum = m00 * m00 + m01 * m01 + m10 * m10 + m11 * m11;
+        float determinant = m00 * m11 - m01 * m10;
+        float discriminant = Math.max(sum * sum - 4 * determinant * determinant, 0);
+        return (float) Math.sqrt((sum + Math.sqrt(discriminant)) / 2);
+    }
+
+    public float transformX(float x, float y) {
+        return m00 * x + m01 * y + m02;
+    }
+
+    public float transformY(float x, float y) {
+        return m10 * x + m11 * y + m12;
+    }
+
+    public float getTranslateX() {
+        return m02;
+    }
+
+    public float getTranslateY() {
+        return m12;
+    }
+}
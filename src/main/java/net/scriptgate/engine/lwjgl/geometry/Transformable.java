@@ -0,0 +1,27 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+/**
+ * A renderer that keeps a transform stack, extending {@code Renderer.translate} with scaling and rotation.
+ * Transforms are applied to the vertices as they are drawn, changing them never breaks a batch.
+ */
+public interface Transformable {
+
+    /**
+     * Saves the current transform, including translations.
+     */
+    void pushTransform();
+
+    /**
+     * Restores the transform saved by the matching {@link #pushTransform()}.
+     *
+     * @throws IllegalStateException when there is no saved transform
+     */
+    void popTransform();
+
+    void scale(float x, float y);
+
+    /**
+     * @param radians clockwise on screen
+     */
+    void rotate(float radians);
+}
@@ -0,0 +1,94 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+/**
+ * The visible area of the render target, in the coordinates the application draws in.
+ * <p>
+ * Follows the transform applied by the renderer, so bounds can be rejected before any GL work
+ * happens when they fall completely outside the visible area.
+ */
+public class Viewport {
+
+    //lines and outlines are a pixel wide, keep anything touching the edge
+    private static final float MARGIN = 1;
+
+    private final TransformStack transform;
+    private int width;
+    private int height;
+
+    private int drawn;
+    private int culled;
+
+    public Viewport() {
+        this(new TransformStack());
+    }
+
+    /**
+     * @param transform the transform applied to everything that is drawn
+     */
+    public Viewport(TransformStack transform) {
+        this.transform = transform;
+    }
+
+    public void setSize(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void translate(float x, float y) {
+        transform.translate(x, y);
+    }
+
+    public TransformStack getTransform() {
+        return transform;
+    }
+
+    /**
+     * Counts the bounds as either drawn or culled.
+     *
+     * @return whether the bounds overlap the visible area.
+     */
+    public boolean isVisible(float x0, float y0, float x1, float y1) {
+        float ax = transform.transformX(x0, y0), ay = transform.transformY(x0, y0);
+        float bx = transform.transformX(x1, y1), by = transform.transformY(x1, y1);
+        float left = Math.min(ax, bx);
+        float right = Math.max(ax, bx);
+        float top = Math.min(ay, by);
+        float bottom = Math.max(ay, by);
+        if (!transform.isAxisAligned()) {
+//          the other two corners end up outside the box of the first two
+            float cx = transform.transformX(x1, y0), cy = transform.transformY(x1, y0);
+            float dx = transform.transformX(x0, y1), dy = transform.transformY(x0, y1);
+            left = Math.min(left, Math.min(cx, dx));
+            right = Math.max(right, Math.max(cx, dx));
+            top = Math.min(top, Math.min(cy, dy));
+            bottom = Math.max(bottom, Math.max(cy, dy));
+        }
+        if (right < -MARGIN || left > width + MARGIN || bottom < -MARGIN || top > height + MARGIN) {
+            culled++;
+            return false;
+        }
+        drawn++;
+        return true;
+    }
+
+    public int getDrawnCount() {
+        return drawn;
+    }
+
+    public int getCulledCount() {
+        return culled;
+    }
+
+    public void resetCounters() {
+        drawn = 0;
+        culled = 0;
+    }
+}
@@ -0,0 +1,233 @@
+package net.scriptgate.engine.lwjgl.gl;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL14;
+
+/**
+ * Shadow copy of the GL state the engine changes, skipping calls that would not change anything.
+ * <p>
+ * Only valid as long as every change to the tracked state goes through this class.
+ * Call {@link #invalidate()} after creating a context or after touching the state directly.
+ */
+public final class GLState {
+
+    private static final int UNKNOWN = -1;
+    private static final int DISABLED = 0;
+    private static final int ENABLED = 1;
+
+    private static final int MAX_CAPABILITIES = 16;
+
+    private static final int[] capabilities = new int[MAX_CAPABILITIES];
+    private static final int[] capabilityStates = new int[MAX_CAPABILITIES];
+    private static int trackedCapabilities;
+
+    private static int boundTexture = UNKNOWN;
+
+    private static boolean colorKnown;
+    private static float red;
+    private static float green;
+    private static float blue;
+    private static float alpha;
+
+    private static int blendSource = UNKNOWN;
+    private static int blendDestination = UNKNOWN;
+    private static int blendSourceAlpha = UNKNOWN;
+    private static int blendDestinationAlpha = UNKNOWN;
+
+    private static long skippedCalls;
+    private static long textureBinds;
+    private static long stateChanges;
+    private static long drawCalls;
+    private static long drawnVertices;
+    private static boolean coreProfile;
+
+    private GLState() {
+    }
+
+    /**
+     * @param coreProfile when true, enabling or disabling {@code GL_TEXTURE_2D} is ignored since it is not
+     *                    a capability in a core profile context, texturing is up to the shaders
+     */
+    public static void setCoreProfile(boolean coreProfile) {
+        GLState.coreProfile = coreProfile;
+    }
+
+    public static boolean isCoreProfile() {
+        return coreProfile;
+    }
+
+    public static void enable(int capability) {
+        if (coreProfile && capability == GL11.GL_TEXTURE_2D) {
+            return;
+        }
+        int index = indexOf(capability);
+        if (capabilityStates[index] == ENABLED) {
+            skippedCalls++;
+            return;
+        }
+        GL11.glEnable(capability);
+        capabilityStates[index] = ENABLED;
+        stateChanges++;
+    }
+
+    public static void disable(int capability) {
+        if (coreProfile && capability == GL11.GL_TEXTURE_2D) {
+            return;
+        }
+        int index = indexOf(capability);
+        if (capabilityStates[index] == DISABLED) {
+            skippedCalls++;
+            return;
+        }
+        GL11.glDisable(capability);
+        capabilityStates[index] = DISABLED;
+        stateChanges++;
+    }
+
+    private static int indexOf(int capability) {
+        for (int i = 0; i < trackedCapabilities; i++) {
+            if (capabilities[i] == capability) {
+                return i;
+            }
+        }
+        if (trackedCapabilities == MAX_CAPABILITIES) {
+            throw new IllegalStateException("Too many capabilities tracked, cannot track 0x" + Integer.toHexString(capability));
+        }
+        capabilities[trackedCapabilities] = capability;
+        capabilityStates[trackedCapabilities] = UNKNOWN;
+        return trackedCapabilities++;
+    }
+
+    public static void bindTexture(int texture) {
+        if (boundTexture == texture) {
+            skippedCalls++;
+            return;
+        }
+        GL11.glBindTexture(GL11.GL_TEXTURE_2D, texture);
+        boundTexture = texture;
+        textureBinds++;
+    }
+
+    public static void deleteTexture(int texture) {
+        GL11.glDeleteTextures(texture);
+//      deleting the bound texture reverts the binding to 0
+        if (boundTexture == texture) {
+            boundTexture = 0;
+        }
+    }
+
+    public static void color(float r, float g, float b, float a) {
+        if (colorKnown && red == r && green == g && blue == b && alpha == a) {
+            skippedCalls++;
+            return;
+        }
+        GL11.glColor4f(r, g, b, a);
+        red = r;
+        green = g;
+        blue = b;
+        alpha = a;
+        colorKnown = true;
+        stateChanges++;
+    }
+
+    /**
+     * Drawing with a color array leaves the current color undefined.
+     */
+    public static void invalidateColor() {
+        colorKnown = false;
+    }
+
+    public static void blendFunc(int source, int destination) {
+        if (isBlendFunc(source, destination, source, destination)) {
+            skippedCalls++;
+            return;
+        }
+        GL11.glBlendFunc(source, destination);
+        setBlendFunc(source, destination, source, destination);
+        stateChanges++;
+    }
+
+    public static void blendFuncSeparate(int source, int destination, int sourceAlpha, int destinationAlpha) {
+        if (isBlendFunc(source, destination, sourceAlpha, destinationAlpha)) {
+            skippedCalls++;
+            return;
+        }
+        GL14.glBlendFuncSeparate(source, destination, sourceAlpha, destinationAlpha);
+        setBlendFunc(source, destination, sourceAlpha, destinationAlpha);
+        stateChanges++;
+    }
+
+    private static boolean isBlendFunc(int source, int destination, int sourceAlpha, int destinationAlpha) {
+        return blendSource == source && blendDestination == destination
+                && blendSourceAlpha == sourceAlpha && blendDestinationAlpha == destinationAlpha;
+    }
+
+    private static void setBlendFunc(int source, int destination, int sourceAlpha, int destinationAlpha) {
+        blendSource = source;
+        blendDestination = destination;
+        blendSourceAlpha = sourceAlpha;
+        blendDestinationAlpha = destinationAlpha;
+    }
+
+    public static void invalidate() {
+        for (int i = 0; i < trackedCapabilities; i++) {
+            capabilityStates[i] = UNKNOWN;
+        }
+        boundTexture = UNKNOWN;
+        colorKnown = false;
+        setBlendFunc(UNKNOWN, UNKNOWN, UNKNOWN, UNKNOWN);
+    }
+
+    /**
+     * @return the number of calls that were not sent to GL because they would not have changed anything.
+     */
+    public static long getSkippedCalls() {
+        return skippedCalls;
+    }
+
+    public static void resetSkippedCalls() {
+        skippedCalls = 0;
+    }
+
+    /**
+     * Counts a draw call, made by whoever calls GL to draw since drawing does not go through this class.
+     *
+     * @param vertices the number of vertices processed by the call, shared vertices are counted once per index
+     */
+    public static void countDrawCall(int vertices) {
+        drawCalls++;
+        drawnVertices += vertices;
+    }
+
+    /**
+     * @return the number of textures bound since the counters were reset.
+     */
+    public static long getTextureBinds() {
+        return textureBinds;
+    }
+
+    /**
+     * @return the number of capabilities, colors and blend functions changed since the counters were reset.
+     */
+    public static long getStateChanges() {
+        return stateChanges;
+    }
+
+    public static long getDrawCalls() {
+        return drawCalls;
+    }
+
+    public static long getDrawnVertices() {
+        return drawnVertices;
+    }
+
+    /**
+     * Resets the texture bind, state change and draw call counters, the skipped calls are kept.
+     */
+    public static void resetCounters() {
+        textureBinds = 0;
+        stateChanges = 0;
+        drawCalls = 0;
+        drawnVertices = 0;
+    }
+}
@@ -0,0 +1,248 @@
+package net.scriptgate.engine.lwjgl.gl;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.ARBTimerQuery;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures how long named scopes take on the GPU, next to how long they take on the CPU.
+ * <p>
+ * The start and end of a scope are marked with {@code GL_TIMESTAMP} queries, so scopes can be nested and a scope
+ * can be entered several times per frame, its times are summed. Queries are kept for {@value #FRAMES} frames
+ * before their results are read, by then the GPU has finished with them and reading does not stall.
+ * Results that are still not available are dropped instead of waited for, see {@link #getDroppedFrames()}.
+ * <p>
+ * Without {@code ARB_timer_query} only the CPU times are measured and the GPU times stay 0.
+ * Scopes are registered up front so measuring a frame does not allocate.
+ */
+public class GpuProfiler {
+
+    private static final int FRAMES = 4;
+    private static final int MAX_SCOPES = 32;
+    private static final int NONE = -1;
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final int maxTimestamps;
+    private final List<String> names = new ArrayList<>();
+
+    private final int[][] queries;
+    private final int[][] timestampScopes;
+    private final int[] timestampCounts = new int[FRAMES];
+    private final long[][] cpuNanos = new long[FRAMES][MAX_SCOPES];
+    private final boolean[] frameUsed = new boolean[FRAMES];
+
+    private final long[] cpuStart = new long[MAX_SCOPES];
+    private final int[] openTimestamp = new int[MAX_SCOPES];
+    private final boolean[] open = new boolean[MAX_SCOPES];
+
+    private final double[] gpuMillis = new double[MAX_SCOPES];
+    private final double[] cpuMillis = new double[MAX_SCOPES];
+
+    private boolean supported;
+    private boolean arbTimerQuery;
+    private int frame;
+    private long droppedFrames;
+    private long droppedScopes;
+
+    public GpuProfiler() {
+        this(256);
+    }
+
+    /**
+     * @param maxScopesPerFrame the number of times scopes can be entered per frame before they are only measured on the CPU
+     */
+    public GpuProfiler(int maxScopesPerFrame) {
+        if (maxScopesPerFrame <= 0) {
+            throw new IllegalArgumentException("Maximum number of scopes per frame must be positive: " + maxScopesPerFrame);
+        }
+        this.maxTimestamps = maxScopesPerFrame * 2;
+        this.queries = new int[FRAMES][maxTimestamps];
+        this.timestampScopes = new int[FRAMES][maxTimestamps];
+    }
+
+    public void initialize() {
+        GLCapabilities capabilities = GL.getCapabilities();
+        supported = capabilities.OpenGL33 || capabilities.GL_ARB_timer_query;
+        arbTimerQuery = !capabilities.OpenGL33;
+        if (!supported) {
+            return;
+        }
+        IntBuffer ids = BufferUtils.createIntBuffer(maxTimestamps);
+        for (int i = 0; i < FRAMES; i++) {
+            ids.clear();
+            GL15.glGenQueries(ids);
+            ids.get(queries[i]);
+        }
+    }
+
+    /**
+     * @return false when the context cannot measure GPU time, in which case only CPU times are reported.
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * @return the id of the new scope, to pass to {@link #begin(int)} and {@link #end(int)}
+     */
+    public int register(String name) {
+        if (names.size() == MAX_SCOPES) {
+            throw new IllegalStateException(String.format("Cannot register scope %s, at most %d scopes are supported", name, MAX_SCOPES));
+        }
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    public void begin(int scope) {
+        if (open[scope]) {
+            throw new IllegalStateException("Scope " + names.get(scope) + " has already begun");
+        }
+        open[scope] = true;
+        openTimestamp[scope] = NONE;
+        if (supported) {
+            int timestamp = timestampCounts[frame];
+            if (timestamp + 2 <= maxTimestamps) {
+                queryCounter(queries[frame][timestamp]);
+                timestampScopes[frame][timestamp] = scope;
+                openTimestamp[scope] = timestamp;
+                timestampCounts[frame] += 2;
+            } else {
+                droppedScopes++;
+            }
+        }
+        cpuStart[scope] = System.nanoTime();
+    }
+
+    public void end(int scope) {
+        long end = System.nanoTime();
+        if (!open[scope]) {
+            throw new IllegalStateException("Scope " + names.get(scope) + " has not begun");
+        }
+        open[scope] = false;
+        cpuNanos[frame][scope] += end - cpuStart[scope];
+        if (openTimestamp[scope] != NONE) {
+            queryCounter(queries[frame][openTimestamp[scope] + 1]);
+        }
+    }
+
+    /**
+     * Moves on to the next frame, reading the results of the oldest frame in flight.
+     * Has to be called once per frame, after every scope of the frame has ended.
+     */
+    public void endFrame() {
+        for (int scope = 0; scope < names.size(); scope++) {
+            if (open[scope]) {
+                throw new IllegalStateException("Scope " + names.get(scope) + " has not ended");
+            }
+        }
+        frameUsed[frame] = true;
+        frame = (frame + 1) % FRAMES;
+        if (frameUsed[frame]) {
+            readResults(frame);
+        }
+        timestampCounts[frame] = 0;
+        for (int scope = 0; scope < names.size(); scope++) {
+            cpuNanos[frame][scope] = 0;
+        }
+    }
+
+    private void readResults(int frame) {
+        int timestamps = timestampCounts[frame];
+//      timestamps complete in order, once the last one is available the others are as well
+        if (timestamps > 0 && GL15.glGetQueryObjecti(queries[frame][timestamps - 1], GL15.GL_QUERY_RESULT_AVAILABLE) == 0) {
+            droppedFrames++;
+            return;
+        }
+        for (int scope = 0; scope < names.size(); scope++) {
+            gpuMillis[scope] = 0;
+            cpuMillis[scope] = cpuNanos[frame][scope] / NANOS_PER_MILLI;
+        }
+        for (int timestamp = 0; timestamp < timestamps; timestamp += 2) {
+            long start = queryResult(queries[frame][timestamp]);
+            long end = queryResult(queries[frame][timestamp + 1]);
+            gpuMillis[timestampScopes[frame][timestamp]] += (end - start) / NANOS_PER_MILLI;
+        }
+    }
+
+    private void queryCounter(int query) {
+        if (arbTimerQuery) {
+            ARBTimerQuery.glQueryCounter(query, ARBTimerQuery.GL_TIMESTAMP);
+        } else {
+            GL33.glQueryCounter(query, GL33.GL_TIMESTAMP);
+        }
+    }
+
+    private long queryResult(int query) {
+        if (arbTimerQuery) {
+            return ARBTimerQuery.glGetQueryObjectui64(query, GL15.GL_QUERY_RESULT);
+        }
+        return GL33.glGetQueryObjectui64(query, GL15.GL_QUERY_RESULT);
+    }
+
+    public int getScopeCount() {
+        return names.size();
+    }
+
+    public String getName(int scope) {
+        return names.get(scope);
+    }
+
+    /**
+     * @return the time the GPU spent in the scope during the last frame that was read back, in milliseconds.
+     */
+    public double getGpuMillis(int scope) {
+        return gpuMillis[scope];
+    }
+
+    /**
+     * @return the time the CPU spent in the scope during the same frame as {@link #getGpuMillis(int)}, in milliseconds.
+     */
+    public double getCpuMillis(int scope) {
+        return cpuMillis[scope];
+    }
+
+    /**
+     * @return the number of frames whose results were not available in time and were not reported.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * @return the number of times a scope was only measured on the CPU because the queries of the frame ran out.
+     */
+    public long getDroppedScopes() {
+        return droppedScopes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        for (int scope = 0; scope < names.size(); scope++) {
+            if (scope > 0) {
+                report.append(", ");
+            }
+            report.append(String.format("%s: %.3f ms GPU / %.3f ms CPU", names.get(scope), gpuMillis[scope], cpuMillis[scope]));
+        }
+        return report.toString();
+    }
+
+    public void destroy() {
+        if (supported) {
+            IntBuffer ids = BufferUtils.createIntBuffer(maxTimestamps);
+            for (int i = 0; i < FRAMES; i++) {
+                ids.clear();
+                ids.put(queries[i]).flip();
+                GL15.glDeleteQueries(ids);
+            }
+            supported = false;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.scriptgate.engine.lwjgl.gl;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL30;
+
+/**
+ * A framebuffer of a fixed size backed by a color renderbuffer, used as the render target when there is no visible window.
+ * <p>
+ * The pixels of a hidden window are not guaranteed to be kept, those of a framebuffer object are,
+ * so frames read back with {@code glReadPixels} while it is bound are what was drawn.
+ */
+public class OffscreenFramebuffer {
+
+    private final int width;
+    private final int height;
+
+    private int framebufferId;
+    private int renderbufferId;
+
+    public OffscreenFramebuffer(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException(String.format("Offscreen framebuffer size must be positive: %dx%d", width, height));
+        }
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Creates the framebuffer and leaves it bound, needs an OpenGL 3.0 context.
+     */
+    public void initialize() {
+        renderbufferId = GL30.glGenRenderbuffers();
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, renderbufferId);
+        GL30.glRenderbufferStorage(GL30.GL_RENDERBUFFER, GL11.GL_RGBA8, width, height);
+        GL30.glBindRenderbuffer(GL30.GL_RENDERBUFFER, 0);
+
+        framebufferId = GL30.glGenFramebuffers();
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+        GL30.glFramebufferRenderbuffer(GL30.GL_FRAMEBUFFER, GL30.GL_COLOR_ATTACHMENT0, GL30.GL_RENDERBUFFER, renderbufferId);
+        int status = GL30.glCheckFramebufferStatus(GL30.GL_FRAMEBUFFER);
+        if (status != GL30.GL_FRAMEBUFFER_COMPLETE) {
+            throw new IllegalStateException(String.format("Offscreen framebuffer is incomplete: 0x%X", status));
+        }
+        GL11.glViewport(0, 0, width, height);
+    }
+
+    public void bind() {
+        GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebufferId);
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void destroy() {
+        if (framebufferId != 0) {
+            GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, 0);
+            GL30.glDeleteFramebuffers(framebufferId);
+            GL30.glDeleteRenderbuffers(renderbufferId);
+            framebufferId = 0;
+            renderbufferId = 0;
+        }
+    }
+}
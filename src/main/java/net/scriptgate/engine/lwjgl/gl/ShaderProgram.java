@@ -0,0 +1,66 @@
+package net.scriptgate.engine.lwjgl.gl;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+/**
+ * A vertex and fragment shader linked into a program.
+ */
+public class ShaderProgram {
+
+    private final int programId;
+
+    /**
+     * @param attributes the names of the vertex attributes, bound to locations 0, 1, 2, ... in the given order
+     */
+    public ShaderProgram(String vertexSource, String fragmentSource, String... attributes) {
+        int vertexShader = compile(GL20.GL_VERTEX_SHADER, vertexSource);
+        int fragmentShader = compile(GL20.GL_FRAGMENT_SHADER, fragmentSource);
+
+        programId = GL20.glCreateProgram();
+        GL20.glAttachShader(programId, vertexShader);
+        GL20.glAttachShader(programId, fragmentShader);
+        for (int location = 0; location < attributes.length; location++) {
+            GL20.glBindAttribLocation(programId, location, attributes[location]);
+        }
+        GL20.glLinkProgram(programId);
+        GL20.glDetachShader(programId, vertexShader);
+        GL20.glDetachShader(programId, fragmentShader);
+        GL20.glDeleteShader(vertexShader);
+        GL20.glDeleteShader(fragmentShader);
+
+        if (GL20.glGetProgrami(programId, GL20.GL_LINK_STATUS) != GL11.GL_TRUE) {
+            String log = GL20.glGetProgramInfoLog(programId);
+            GL20.glDeleteProgram(programId);
+            throw new IllegalStateException("Failed to link shader program: " + log);
+        }
+    }
+
+    private static int compile(int type, String source) {
+        int shader = GL20.glCreateShader(type);
+        GL20.glShaderSource(shader, source);
+        GL20.glCompileShader(shader);
+        if (GL20.glGetShaderi(shader, GL20.GL_COMPILE_STATUS) != GL11.GL_TRUE) {
+            String log = GL20.glGetShaderInfoLog(shader);
+            GL20.glDeleteShader(shader);
+            throw new IllegalStateException("Failed to compile shader: " + log);
+        }
+        return shader;
+    }
+
+    public int getUniformLocation(String name) {
+        return GL20.glGetUniformLocation(programId, name);
+    }
+
+    public void use() {
+        GL20.glUseProgram(programId);
+    }
+
+    public static void useFixedFunction() {
+        GL20.glUseProgram(0);
+    }
+
+    public void destroy() {
+        GL20.glDeleteProgram(programId);
+    }
+}
@@ -0,0 +1,98 @@
+package net.scriptgate.engine.lwjgl.gl;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL20;
+
+import java.nio.ByteBuffer;
+
+/**
+ * GLSL 3.30 replacement for the fixed-function pipeline as the engine uses it: an orthographic projection
+ * with the origin in the top left corner, a translation, and a texture modulated by the vertex color.
+ * Untextured primitives are drawn with a white texture so a single program covers everything.
+ */
+public class SpriteShader {
+
+    public static final int POSITION = 0;
+    public static final int TEXTURE_COORDINATE = 1;
+    public static final int COLOR = 2;
+
+    //@formatter:off
+    private static final String VERTEX_SHADER = "" +
+            "#version 330 core\n" +
+            "in vec2 position;\n" +
+            "in vec2 textureCoordinate;\n" +
+            "in vec4 color;\n" +
+            "uniform vec2 viewportSize;\n" +
+            "uniform vec2 translation;\n" +
+            "out vec2 spriteCoordinate;\n" +
+            "out vec4 tint;\n" +
+            "void main() {\n" +
+            "    vec2 clip = (position + translation) / viewportSize * 2.0 - 1.0;\n" +
+            "    spriteCoordinate = textureCoordinate;\n" +
+            "    tint = color;\n" +
+            "    gl_Position = vec4(clip.x, -clip.y, 0.0, 1.0);\n" +
+            "}\n";
+
+    private static final String FRAGMENT_SHADER = "" +
+            "#version 330 core\n" +
+            "uniform sampler2D sprite;\n" +
+            "in vec2 spriteCoordinate;\n" +
+            "in vec4 tint;\n" +
+            "out vec4 fragmentColor;\n" +
+            "void main() {\n" +
+            "    fragmentColor = texture(sprite, spriteCoordinate) * tint;\n" +
+            "}\n";
+    //@formatter:on
+
+    private ShaderProgram program;
+    private int viewportSizeLocation;
+    private int translationLocation;
+    private int whiteTexture;
+
+    public void initialize() {
+        program = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER, "position", "textureCoordinate", "color");
+        viewportSizeLocation = program.getUniformLocation("viewportSize");
+        translationLocation = program.getUniformLocation("translation");
+        program.use();
+        GL20.glUniform1i(program.getUniformLocation("sprite"), 0);
+
+        ByteBuffer white = BufferUtils.createByteBuffer(4);
+        white.put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).put((byte) 0xFF).flip();
+        whiteTexture = GL11.glGenTextures();
+        GLState.bindTexture(whiteTexture);
+        GL11.glTexImage2D(GL11.GL_TEXTURE_2D, 0, GL11.GL_RGBA, 1, 1, 0, GL11.GL_RGBA, GL11.GL_UNSIGNED_BYTE, white);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+        GL11.glTexParameteri(GL11.GL_TEXTURE_2D, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+    }
+
+    public void use() {
+        program.use();
+    }
+
+    public void setViewportSize(int width, int height) {
+        program.use();
+        GL20.glUniform2f(viewportSizeLocation, width, height);
+    }
+
+    /**
+     * @param x the horizontal translation applied after the vertices are transformed, like the 0.375 offset of the fixed-function setup
+     * @param y the vertical translation applied after the vertices are transformed
+     */
+    public void setTranslation(float x, float y) {
+        program.use();
+        GL20.glUniform2f(translationLocation, x, y);
+    }
+
+    public int getWhiteTexture() {
+        return whiteTexture;
+    }
+
+    public void destroy() {
+        if (program != null) {
+            program.destroy();
+            GLState.deleteTexture(whiteTexture);
+            program = null;
+        }
+    }
+}
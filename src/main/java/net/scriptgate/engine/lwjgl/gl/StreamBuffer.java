@@ -0,0 +1,218 @@
+package net.scriptgate.engine.lwjgl.gl;
+
+import org.lwjgl.opengl.ARBBufferStorage;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL44;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * A buffer object that vertex data is streamed into every frame without waiting for the GPU to finish reading it.
+ * <p>
+ * When the context supports {@code ARB_buffer_storage}, the buffer is split in three regions that stay mapped.
+ * Data is written into one region while the GPU reads the other two, and a fence placed when a region is left
+ * tells when it can be written again. On older contexts, data is appended with {@code glBufferSubData}
+ * and the buffer is orphaned with {@code glBufferData} once it is full.
+ * <p>
+ * Data that is drawn together has to be {@link #reserve(int) reserved} before it is written.
+ */
+public class StreamBuffer {
+
+    private static final int REGIONS = 3;
+    private static final int ALIGNMENT = 4;
+    private static final long NO_FENCE = 0;
+    private static final long WAIT_TIMEOUT = 1_000_000;
+
+    private final int regionSize;
+    private final long[] fences = new long[REGIONS];
+
+    private int bufferId;
+    private ByteBuffer mapping;
+    private long mappingAddress;
+    //the region being written, always 0 when orphaning
+    private int region;
+    private int offset;
+
+    private long bytesStreamed;
+    private long fenceWaitNanos;
+    private long lastFrameBytesStreamed;
+    private long lastFrameFenceWaitNanos;
+
+    /**
+     * @param regionSize the number of bytes that can be written before the buffer waits on or orphans older data,
+     *                   at least the size of the largest reservation
+     */
+    public StreamBuffer(int regionSize) {
+        if (regionSize <= 0) {
+            throw new IllegalArgumentException("Region size must be positive: " + regionSize);
+        }
+        this.regionSize = regionSize;
+    }
+
+    public void initialize() {
+        GLCapabilities capabilities = GL.getCapabilities();
+        if (!capabilities.OpenGL15) {
+            return;
+        }
+        bufferId = GL15.glGenBuffers();
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferId);
+        if (capabilities.OpenGL44 || (capabilities.GL_ARB_buffer_storage && capabilities.OpenGL32)) {
+            int flags = GL30.GL_MAP_WRITE_BIT | GL44.GL_MAP_PERSISTENT_BIT | GL44.GL_MAP_COHERENT_BIT;
+            if (capabilities.OpenGL44) {
+                GL44.glBufferStorage(GL15.GL_ARRAY_BUFFER, (long) regionSize * REGIONS, flags);
+            } else {
+                ARBBufferStorage.glBufferStorage(GL15.GL_ARRAY_BUFFER, (long) regionSize * REGIONS, flags);
+            }
+            mapping = GL30.glMapBufferRange(GL15.GL_ARRAY_BUFFER, 0, (long) regionSize * REGIONS, flags);
+            mappingAddress = MemoryUtil.memAddress(mapping);
+        } else {
+            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) regionSize * REGIONS, GL15.GL_STREAM_DRAW);
+        }
+        GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+        region = 0;
+        offset = 0;
+    }
+
+    /**
+     * @return true when the buffer is persistently mapped, false when it falls back to orphaning.
+     */
+    public boolean isPersistent() {
+        return mapping != null;
+    }
+
+    public int getBufferId() {
+        return bufferId;
+    }
+
+    /**
+     * Makes sure the given number of bytes can be written next without older data of this frame being replaced.
+     */
+    public void reserve(int bytes) {
+        if (bytes > regionSize) {
+            throw new IllegalArgumentException(String.format("Cannot reserve %d bytes in a stream buffer with regions of %d bytes", bytes, regionSize));
+        }
+        int start = align(offset);
+        if (isPersistent()) {
+            if (start + bytes > regionSize) {
+                nextRegion();
+            }
+        } else if (start + bytes > regionSize * REGIONS) {
+//          orphan the buffer, the driver hands out new storage while the GPU still reads the old one
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferId);
+            GL15.glBufferData(GL15.GL_ARRAY_BUFFER, (long) regionSize * REGIONS, GL15.GL_STREAM_DRAW);
+            offset = 0;
+        }
+    }
+
+    /**
+     * Writes the remaining floats of the given buffer, without changing its position.
+     *
+     * @return the offset of the data in the buffer object, in bytes
+     */
+    public long put(FloatBuffer data) {
+        int bytes = data.remaining() * Float.BYTES;
+        return put(MemoryUtil.memAddress(data), bytes, data, null);
+    }
+
+    /**
+     * Writes the remaining shorts of the given buffer, without changing its position.
+     *
+     * @return the offset of the data in the buffer object, in bytes
+     */
+    public long put(ShortBuffer data) {
+        int bytes = data.remaining() * Short.BYTES;
+        return put(MemoryUtil.memAddress(data), bytes, null, data);
+    }
+
+    private long put(long address, int bytes, FloatBuffer floats, ShortBuffer shorts) {
+        reserve(bytes);
+        offset = align(offset);
+        long bufferOffset = (long) region * regionSize + offset;
+        if (isPersistent()) {
+            MemoryUtil.memCopy(address, mappingAddress + bufferOffset, bytes);
+        } else {
+            GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferId);
+            if (floats != null) {
+                GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, bufferOffset, floats);
+            } else {
+                GL15.glBufferSubData(GL15.GL_ARRAY_BUFFER, bufferOffset, shorts);
+            }
+        }
+        offset += bytes;
+        bytesStreamed += bytes;
+        return bufferOffset;
+    }
+
+    private static int align(int offset) {
+        return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private void nextRegion() {
+        fences[region] = GL32.glFenceSync(GL32.GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        region = (region + 1) % REGIONS;
+        offset = 0;
+        if (fences[region] != NO_FENCE) {
+            long start = System.nanoTime();
+            while (GL32.glClientWaitSync(fences[region], GL32.GL_SYNC_FLUSH_COMMANDS_BIT, WAIT_TIMEOUT) == GL32.GL_TIMEOUT_EXPIRED) {
+//              keep waiting, the region is still being read
+            }
+            fenceWaitNanos += System.nanoTime() - start;
+            GL32.glDeleteSync(fences[region]);
+            fences[region] = NO_FENCE;
+        }
+    }
+
+    /**
+     * Moves on to the next region, so the data of the next frame does not share a region with the data of this one.
+     * Has to be called once per frame, after the last draw call that reads from the buffer.
+     */
+    public void endFrame() {
+        if (isPersistent() && offset > 0) {
+            nextRegion();
+        }
+        lastFrameBytesStreamed = bytesStreamed;
+        lastFrameFenceWaitNanos = fenceWaitNanos;
+        bytesStreamed = 0;
+        fenceWaitNanos = 0;
+    }
+
+    /**
+     * @return the number of bytes written during the last frame.
+     */
+    public long getBytesStreamed() {
+        return lastFrameBytesStreamed;
+    }
+
+    /**
+     * @return the time spent during the last frame waiting for the GPU to release a region, in nanoseconds.
+     */
+    public long getFenceWaitNanos() {
+        return lastFrameFenceWaitNanos;
+    }
+
+    public void destroy() {
+        for (int i = 0; i < REGIONS; i++) {
+            if (fences[i] != NO_FENCE) {
+                GL32.glDeleteSync(fences[i]);
+                fences[i] = NO_FENCE;
+            }
+        }
+        if (bufferId != 0) {
+            if (isPersistent()) {
+                GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, bufferId);
+                GL15.glUnmapBuffer(GL15.GL_ARRAY_BUFFER);
+                GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+            }
+            GL15.glDeleteBuffers(bufferId);
+            bufferId = 0;
+            mapping = null;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package net.scriptgate.engine.lwjgl.text;
+
+import net.scriptgate.common.Rectangle;
+
+/**
+ * A renderer that can draw text in the fonts registered with {@link Fonts}.
+ * Changing the font does not break a batch, fonts are drawn from shared atlas pages.
+ */
+public interface FontSelectable {
+
+    /**
+     * Selects the font text is drawn and measured with, until it is changed or the frame ends,
+     * after which the {@link Fonts#DEFAULT default font} is selected again.
+     *
+     * @param font a handle returned by {@link Fonts#register}
+     * @throws IllegalArgumentException when the font is not registered
+     */
+    void setFont(int font);
+
+    int getFont();
+
+    /**
+     * Measures text in the given font, without selecting it.
+     */
+    Rectangle getBounds(int font, int x, int y, String text);
+
+    /**
+     * Measures text in the given font without selecting it, like {@link TextRenderer#getBounds(int, int, CharSequence, Rectangle)}.
+     */
+    void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds);
+}
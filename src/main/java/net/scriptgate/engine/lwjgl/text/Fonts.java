@@ -0,0 +1,99 @@
+package net.scriptgate.engine.lwjgl.text;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The fonts text can be drawn with besides the default font, addressed by the handle {@link #register} returns
+ * and selected with {@link FontSelectable#setFont(int)}.
+ * <p>
+ * Fonts and sizes are packed into shared glyph atlas pages, switching fonts within a frame does not switch textures.
+ * Oversampled fonts share pages of their own, which are filtered linearly.
+ * Fonts are loaded when text is first drawn or measured with them, register them up front from any thread.
+ */
+public final class Fonts {
+
+    /**
+     * The font configured with {@code OpenGLTTFRenderer.FONT_FILE} and {@code FONT_HEIGHT}.
+     */
+    public static final int DEFAULT = 0;
+//  the handle is kept in the upper bits of a glyph key, next to the code point
+    public static final int MAX_FONTS = 1 << 10;
+//  the limit of stb_truetype
+    public static final int MAX_OVERSAMPLING = 8;
+
+    private static final List<Font> fonts = new ArrayList<>();
+
+    private Fonts() {
+    }
+
+    public static int register(String file, float height) {
+        return register(file, height, 1, 1);
+    }
+
+    /**
+     * @param file        the font, loaded like {@code OpenGLTTFRenderer.FONT_FILE}. Sizes of the same file share it.
+     * @param height      the height of the font in pixels
+     * @param oversampleX rasterizes the glyphs at this many times the horizontal resolution, for sharper text that is
+     *                    scaled or placed between pixels. 1 aligns the glyphs to whole pixels.
+     * @return the handle of the font
+     */
+    public static synchronized int register(String file, float height, int oversampleX, int oversampleY) {
+        if (file == null) {
+            throw new IllegalArgumentException("Font file cannot be null");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("Font height must be positive: " + height);
+        }
+        if (oversampleX < 1 || oversampleX > MAX_OVERSAMPLING || oversampleY < 1 || oversampleY > MAX_OVERSAMPLING) {
+            throw new IllegalArgumentException(String.format("Oversampling must be between 1 and %d: %d, %d", MAX_OVERSAMPLING, oversampleX, oversampleY));
+        }
+        if (fonts.size() + 1 == MAX_FONTS) {
+            throw new IllegalStateException(String.format("At most %d fonts can be registered", MAX_FONTS - 1));
+        }
+        fonts.add(new Font(file, height, oversampleX, oversampleY));
+        return fonts.size();
+    }
+
+    public static synchronized boolean isRegistered(int font) {
+        return font >= DEFAULT && font <= fonts.size();
+    }
+
+    public static synchronized String getFile(int font) {
+        return get(font).file;
+    }
+
+    public static synchronized float getHeight(int font) {
+        return get(font).height;
+    }
+
+    public static synchronized int getOversampleX(int font) {
+        return get(font).oversampleX;
+    }
+
+    public static synchronized int getOversampleY(int font) {
+        return get(font).oversampleY;
+    }
+
+    private static Font get(int font) {
+        if (font <= DEFAULT || font > fonts.size()) {
+            throw new IllegalArgumentException("Unknown font: " + font);
+        }
+        return fonts.get(font - 1);
+    }
+
+    private static final class Font {
+
+        private final String file;
+        private final float height;
+        private final int oversampleX;
+        private final int oversampleY;
+
+        Font(String file, float height, int oversampleX, int oversampleY) {
+            this.file = file;
+            this.height = height;
+            this.oversampleX = oversampleX;
+            this.oversampleY = oversampleY;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package net.scriptgate.engine.lwjgl.text;
+
+import net.scriptgate.common.Rectangle;
+
+/**
+ * A renderer that draws and measures text without allocating, for text that changes every frame such as scores and timers.
+ */
+public interface TextRenderer {
+
+    /**
+     * Draws text like {@link net.scriptgate.engine.Renderer#drawText(int, int, String)}, without allocating when drawn every frame.
+     *
+     * @param bounds receives the bounds of the text
+     */
+    void drawText(int x, int y, CharSequence text, Rectangle bounds);
+
+    /**
+     * Measures text like {@link net.scriptgate.engine.Renderer#getBounds(int, int, String)}, without allocating.
+     *
+     * @param bounds receives the bounds of the text
+     */
+    void getBounds(int x, int y, CharSequence text, Rectangle bounds);
+}
@@ -1,8 +1,6 @@
 package net.scriptgate.engine.lwjgl.texture;
 
-import org.lwjgl.opengl.GL11;
-
-import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+import net.scriptgate.engine.lwjgl.gl.GLState;
 
 public class Texture {
 
@@ -19,7 +17,11 @@ public class Texture {
     }
 
     public void bind() {
-        GL11.glBindTexture(GL_TEXTURE_2D, textureID);
+        GLState.bindTexture(textureID);
+    }
+
+    public int getTextureID() {
+        return textureID;
     }
 
     public int getHeight() {
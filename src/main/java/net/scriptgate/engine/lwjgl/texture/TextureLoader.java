@@ -1,6 +1,7 @@
 package net.scriptgate.engine.lwjgl.texture;
 
 import net.scriptgate.engine.image.ImageLoader;
+import net.scriptgate.engine.lwjgl.gl.GLState;
 
 import java.awt.Color;
 import java.awt.Graphics;
@@ -36,7 +37,7 @@ public class TextureLoader extends ImageLoader<Texture> {
 
     @Override
     public Texture loadTexture(String path) {
-        glEnable(GL_TEXTURE_2D);
+        GLState.enable(GL_TEXTURE_2D);
 
         int textureID = createTextureID();
         Texture texture = new Texture(textureID);
@@ -66,7 +67,7 @@ public class TextureLoader extends ImageLoader<Texture> {
         //The texture minifying function is used whenever the pixel being textured maps to an area greater than one texture element
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
 
-        glDisable(GL_TEXTURE_2D);
+        GLState.disable(GL_TEXTURE_2D);
 
         return texture;
     }
@@ -76,7 +77,7 @@ public class TextureLoader extends ImageLoader<Texture> {
         return textureIDBuffer.get(0);
     }
 
-    private ByteBuffer convertImageData(BufferedImage bufferedImage, Texture texture) {
+    ByteBuffer convertImageData(BufferedImage bufferedImage, Texture texture) {
         texture.setWidth(bufferedImage.getWidth());
         texture.setHeight(bufferedImage.getHeight());
 
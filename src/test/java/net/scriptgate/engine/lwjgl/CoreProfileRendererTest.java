@@ -0,0 +1,47 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Application;
+import net.scriptgate.engine.lwjgl.GoldenImageTest.Configuration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Renders every frame {@link GoldenImageTest} compares with both renderers, each in its own context, and compares the pixels.
+ * Run under Xvfb with Mesa llvmpipe on CI.
+ */
+@RunWith(Parameterized.class)
+public class CoreProfileRendererTest {
+
+    @Parameters(name = "{0}")
+    public static List<Object[]> frames() {
+        return GoldenImageTest.applicationFrames();
+    }
+
+    private final Supplier<? extends Application> applicationSupplier;
+    private final int testCase;
+
+    public CoreProfileRendererTest(String description, Supplier<? extends Application> applicationSupplier, int testCase) {
+        this.applicationSupplier = applicationSupplier;
+        this.testCase = testCase;
+    }
+
+    @Test
+    public void coreProfileRendererMatchesOpenGLRenderer() {
+        int[] expected = pixels(GoldenImageTest.render(applicationSupplier, testCase, Configuration.BATCHED));
+        int[] actual = pixels(GoldenImageTest.render(applicationSupplier, testCase, Configuration.CORE_PROFILE));
+
+        assertArrayEquals(expected, actual);
+    }
+
+    private static int[] pixels(BufferedImage image) {
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+}
@@ -0,0 +1,123 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Renderer;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import org.junit.Test;
+
+import static net.scriptgate.common.Color3f.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DrawSortingTest {
+
+    private static final int SIZE = 256;
+//  two glyphs of this font do not fit on one atlas page
+    private static final int HUGE_FONT = Fonts.register(OpenGLTTFRenderer.FONT_FILE, 600);
+
+    private static void drawScene(Renderer renderer) {
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                int x = 10 + column * 60;
+                int y = 10 + row * 60;
+                renderer.setColor(1, BLUE);
+                renderer.fillRect(x, y, 50, 50);
+                renderer.setColor(1, WHITE);
+                renderer.drawImage(x + 25, y + 5, "images/testTile");
+                renderer.setColor(1, RED);
+                renderer.drawText(x, y + 45, "ab");
+                renderer.drawLine(x, y, x + 49, y + 49);
+            }
+        }
+        renderer.translate(5, 5);
+        renderer.setColor(0.5f, GREEN);
+        renderer.fillCircle(128, 128, 40);
+        renderer.translate(-5, -5);
+    }
+
+    @Test
+    public void sortedFrameLooksLikeUnsortedFrame() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.clear();
+            drawScene(renderer);
+            renderer.flush();
+            int[] unsorted = context.capturePixels();
+
+            renderer.setSortingEnabled(true);
+            context.clear();
+            drawScene(renderer);
+            renderer.flush();
+            int[] sorted = context.capturePixels();
+
+            renderer.destroy();
+
+            assertArrayEquals(unsorted, sorted);
+            //4 kinds of state instead of one change per primitive
+            assertTrue(renderer.getSortedStateChanges() < 16);
+        }
+    }
+
+    @Test
+    public void higherLayerIsDrawnOnTop() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.clear();
+            renderer.setColor(1, BLUE);
+            renderer.fillRect(20, 20, 100, 100);
+            renderer.setColor(1, RED);
+            renderer.fillRect(60, 60, 100, 100);
+            renderer.flush();
+            int[] expected = context.capturePixels();
+
+            renderer.setSortingEnabled(true);
+            context.clear();
+            renderer.setLayer(1);
+            renderer.setColor(1, RED);
+            renderer.fillRect(60, 60, 100, 100);
+            renderer.setLayer(0);
+            renderer.setColor(1, BLUE);
+            renderer.fillRect(20, 20, 100, 100);
+            renderer.flush();
+            int[] layered = context.capturePixels();
+
+            renderer.destroy();
+
+            assertArrayEquals(expected, layered);
+        }
+    }
+
+    @Test
+    public void textSpanningSeveralPagesIsSortedAsAWhole() {
+        try (GLTestContext context = new GLTestContext(1024, 720)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.clear();
+            drawOverlappingText(renderer);
+            int[] unsorted = context.capturePixels();
+
+            renderer.setSortingEnabled(true);
+            context.clear();
+            drawOverlappingText(renderer);
+            int[] sorted = context.capturePixels();
+
+            renderer.destroy();
+
+            assertArrayEquals(unsorted, sorted);
+        }
+    }
+
+    private static void drawOverlappingText(OpenGLRenderer renderer) {
+        renderer.setColor(1, BLUE);
+        renderer.fillRect(0, 0, 1024, 720);
+        renderer.setColor(1, RED);
+        renderer.setFont(HUGE_FONT);
+        renderer.drawText(0, 640, "AB");
+        renderer.flush();
+        renderer.endFrame();
+    }
+}
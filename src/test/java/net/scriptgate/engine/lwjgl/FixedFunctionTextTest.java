@@ -0,0 +1,51 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+
+import static net.scriptgate.common.Color3f.WHITE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Draws text with the fixed-function renderer on whatever context GLFW creates, a compatibility profile
+ * of the highest version on Mesa llvmpipe, where the glyph coverage has to end up in the alpha of the fragments.
+ */
+public class FixedFunctionTextTest {
+
+    private static final int SIZE = 128;
+    private static final int LARGE_FONT = Fonts.register(OpenGLTTFRenderer.FONT_FILE, 64);
+
+    @Test
+    public void glyphsAreNotDrawnAsBoxes() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.clear();
+            renderer.setColor(1, WHITE);
+            renderer.setFont(LARGE_FONT);
+            Rectangle bounds = renderer.drawText(16, 96, "O");
+            renderer.flush();
+            renderer.endFrame();
+            BufferedImage image = context.capture();
+            renderer.destroy();
+
+            int lit = 0;
+            for (int y = bounds.y; y < bounds.y + bounds.height; y++) {
+                for (int x = bounds.x; x < bounds.x + bounds.width; x++) {
+                    if ((image.getRGB(x, y) & 0xFF) > 128) {
+                        lit++;
+                    }
+                }
+            }
+            assertTrue("The glyph is not drawn", lit > 0);
+//          a box fills the whole quad, the counter of an O stays black
+            assertTrue("The glyph is drawn as a box", lit < bounds.width * bounds.height * 3 / 4);
+            assertEquals(0, image.getRGB(bounds.x + bounds.width / 2, bounds.y + bounds.height / 2) & 0xFF);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package net.scriptgate.engine.lwjgl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FramePacerTest {
+
+    private static final long MILLI = 1_000_000;
+
+    @Test
+    public void cappedFramesWaitForTheTargetInterval() {
+        FakeClockPacer pacer = new FakeClockPacer(FramePacing.CAPPED, 50);
+        for (int i = 0; i < 11; i++) {
+            pacer.work(5 * MILLI);
+        }
+        pacer.publish();
+
+        assertEquals(10, pacer.getFrames());
+        assertEquals(20, pacer.getAverageMillis(), 1e-6);
+        assertEquals(0, pacer.getJitterMillis(), 1e-6);
+        assertEquals(0, pacer.getMissedFrames());
+    }
+
+    @Test
+    public void lateFramesAreMissedAndDoNotMakeTheNextFramesCatchUp() {
+        FakeClockPacer pacer = new FakeClockPacer(FramePacing.CAPPED, 50);
+        pacer.work(5 * MILLI);
+        pacer.work(45 * MILLI);
+        pacer.work(5 * MILLI);
+        pacer.publish();
+
+        assertEquals(1, pacer.getMissedFrames());
+        assertEquals((45 + 20) / 2.0, pacer.getAverageMillis(), 1e-6);
+    }
+
+    @Test
+    public void evenPacingFollowsTheSlowestRecentFrames() {
+        FakeClockPacer pacer = new FakeClockPacer(FramePacing.EVEN, 100);
+        for (int i = 0; i < 5; i++) {
+            pacer.work(30 * MILLI);
+            pacer.work(12 * MILLI);
+        }
+        pacer.publish();
+        pacer.work(12 * MILLI);
+        pacer.work(12 * MILLI);
+        pacer.publish();
+
+//      the fast frames wait almost as long as the slow ones instead of alternating between 12 and 30 milliseconds
+        assertEquals(2, pacer.getFrames());
+        assertTrue(pacer.getAverageMillis() > 25);
+    }
+
+    @Test
+    public void uncappedFramesDoNotWait() {
+        FakeClockPacer pacer = new FakeClockPacer(FramePacing.UNCAPPED, 60);
+        pacer.work(MILLI);
+        pacer.work(MILLI);
+        pacer.work(3 * MILLI);
+        pacer.publish();
+
+        assertEquals(2, pacer.getAverageMillis(), 1e-6);
+        assertEquals(1, pacer.getJitterMillis(), 1e-6);
+    }
+
+    @Test
+    public void swapIntervalFollowsThePacing() {
+        assertEquals(0, new FramePacer(FramePacing.UNCAPPED, 60).getSwapInterval(true));
+        assertEquals(0, new FramePacer(FramePacing.CAPPED, 60).getSwapInterval(true));
+        assertEquals(1, new FramePacer(FramePacing.VSYNC, 60).getSwapInterval(true));
+        assertEquals(-1, new FramePacer(FramePacing.ADAPTIVE_VSYNC, 60).getSwapInterval(true));
+        assertEquals(1, new FramePacer(FramePacing.ADAPTIVE_VSYNC, 60).getSwapInterval(false));
+    }
+
+    private static class FakeClockPacer extends FramePacer {
+
+        private long now = MILLI;
+
+        FakeClockPacer(FramePacing pacing, int targetFramesPerSecond) {
+            super(pacing, targetFramesPerSecond);
+        }
+
+        void work(long nanos) {
+            now += nanos;
+            endFrame(nanos);
+        }
+
+        @Override
+        long nanoTime() {
+            return now;
+        }
+
+        @Override
+        void waitUntil(long deadline) {
+            now = Math.max(now, deadline);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.lwjgl.opengl.GL11;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GLStateTest {
+
+    private GLTestContext context;
+
+    @Before
+    public void createContext() {
+        context = new GLTestContext(64, 64);
+        GLState.invalidate();
+        GLState.resetCounters();
+        GLState.resetSkippedCalls();
+    }
+
+    @After
+    public void destroyContext() {
+//      null when the test was skipped for lack of a display
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    public void redundantCallsAreSkippedAndCounted() {
+        int texture = GL11.glGenTextures();
+
+        for (int i = 0; i < 2; i++) {
+            GLState.enable(GL11.GL_SCISSOR_TEST);
+            GLState.bindTexture(texture);
+            GLState.color(1, 0.5f, 0.25f, 1);
+            GLState.blendFunc(GL11.GL_ONE, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        }
+
+        assertEquals(4, GLState.getSkippedCalls());
+        assertEquals(1, GLState.getTextureBinds());
+        assertEquals(3, GLState.getStateChanges());
+        assertTrue(GL11.glIsEnabled(GL11.GL_SCISSOR_TEST));
+        assertEquals(texture, GL11.glGetInteger(GL11.GL_TEXTURE_BINDING_2D));
+        assertEquals(GL11.GL_ONE_MINUS_SRC_ALPHA, GL11.glGetInteger(GL11.GL_BLEND_DST));
+
+        GLState.disable(GL11.GL_SCISSOR_TEST);
+        GLState.color(1, 0.5f, 0.25f, 0.5f);
+        assertEquals(5, GLState.getStateChanges());
+        assertEquals(4, GLState.getSkippedCalls());
+        assertFalse(GL11.glIsEnabled(GL11.GL_SCISSOR_TEST));
+
+        GLState.deleteTexture(texture);
+    }
+
+    @Test
+    public void invalidateForcesTheNextCallThrough() {
+        GLState.enable(GL11.GL_SCISSOR_TEST);
+        GL11.glDisable(GL11.GL_SCISSOR_TEST);
+
+//      the shadow copy does not know about the direct call
+        GLState.enable(GL11.GL_SCISSOR_TEST);
+        assertFalse(GL11.glIsEnabled(GL11.GL_SCISSOR_TEST));
+
+        GLState.invalidate();
+        GLState.enable(GL11.GL_SCISSOR_TEST);
+        assertTrue(GL11.glIsEnabled(GL11.GL_SCISSOR_TEST));
+        assertEquals(2, GLState.getStateChanges());
+        assertEquals(1, GLState.getSkippedCalls());
+
+        GLState.disable(GL11.GL_SCISSOR_TEST);
+    }
+
+    @Test
+    public void deletingTheBoundTextureUnbindsIt() {
+        int texture = GL11.glGenTextures();
+        GLState.bindTexture(texture);
+
+        GLState.deleteTexture(texture);
+        GLState.bindTexture(0);
+
+        assertEquals(1, GLState.getTextureBinds());
+        assertEquals(1, GLState.getSkippedCalls());
+        assertEquals(0, GL11.glGetInteger(GL11.GL_TEXTURE_BINDING_2D));
+    }
+}
@@ -0,0 +1,137 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Engine;
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import net.scriptgate.engine.lwjgl.gl.OffscreenFramebuffer;
+import org.lwjgl.glfw.GLFW;
+import org.lwjgl.glfw.GLFWErrorCallback;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.system.MemoryUtil;
+
+import java.awt.image.BufferedImage;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assume.assumeNoException;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Hidden GLFW window with the same projection as {@link OpenGLEngine}, for tests that need a GL context.
+ * Like a headless engine, it draws into an {@link OffscreenFramebuffer} when the context supports one,
+ * since the pixels of a hidden window are not guaranteed to be kept.
+ * Tests are skipped when no display is available (run under Xvfb with Mesa llvmpipe on CI).
+ */
+class GLTestContext implements AutoCloseable {
+
+    private final GLFWErrorCallback errorCallback;
+    private final long window;
+    private OffscreenFramebuffer offscreenFramebuffer;
+
+    GLTestContext(int width, int height) {
+        this(width, height, false);
+    }
+
+    /**
+     * @param coreProfile when true, an OpenGL 3.3 core profile context is created and the fixed-function projection is left alone
+     */
+    GLTestContext(int width, int height, boolean coreProfile) {
+        Engine.WIDTH = width;
+        Engine.HEIGHT = height;
+
+        errorCallback = initializeGLFW();
+
+        GLFW.glfwDefaultWindowHints();
+        GLFW.glfwWindowHint(GLFW.GLFW_VISIBLE, GL11.GL_FALSE);
+        if (coreProfile) {
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MAJOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_CONTEXT_VERSION_MINOR, 3);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_PROFILE, GLFW.GLFW_OPENGL_CORE_PROFILE);
+            GLFW.glfwWindowHint(GLFW.GLFW_OPENGL_FORWARD_COMPAT, GL11.GL_TRUE);
+        }
+        window = GLFW.glfwCreateWindow(width, height, "test", MemoryUtil.NULL, MemoryUtil.NULL);
+        if (window == MemoryUtil.NULL) {
+            GLFW.glfwTerminate();
+        }
+        assumeTrue("No window could be created", window != MemoryUtil.NULL);
+
+        GLFW.glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+        GLState.invalidate();
+        GLState.setCoreProfile(coreProfile);
+
+        if (GL.getCapabilities().OpenGL30) {
+            offscreenFramebuffer = new OffscreenFramebuffer(width, height);
+            offscreenFramebuffer.initialize();
+        }
+        GL11.glViewport(0, 0, width, height);
+        if (!coreProfile) {
+            OpenGLEngine.setupProjection(width, height);
+        }
+        GLState.disable(GL11.GL_DEPTH_TEST);
+        GLState.enable(GL11.GL_BLEND);
+        GLState.blendFunc(GL11.GL_SRC_ALPHA, GL11.GL_ONE_MINUS_SRC_ALPHA);
+        GL11.glClearColor(0, 0, 0, 1);
+    }
+
+    /**
+     * Skips the test when the GLFW native library cannot be loaded, or GLFW cannot be initialized without a display.
+     */
+    private static GLFWErrorCallback initializeGLFW() {
+        GLFWErrorCallback errorCallback;
+        boolean initialized;
+        try {
+            errorCallback = GLFWErrorCallback.createPrint(System.err);
+            errorCallback.set();
+            initialized = GLFW.glfwInit() == GL11.GL_TRUE;
+        } catch (LinkageError | RuntimeException e) {
+            assumeNoException("GLFW could not be loaded", e);
+            throw e;
+        }
+        assumeTrue("GLFW could not be initialized", initialized);
+        return errorCallback;
+    }
+
+    void clear() {
+        GL11.glClear(GL11.GL_COLOR_BUFFER_BIT);
+    }
+
+    BufferedImage capture() {
+        GL11.glFinish();
+        return OpenGLScreenshotHelper.getScreenshot();
+    }
+
+    int[] capturePixels() {
+        BufferedImage image = capture();
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * Draws the scene with a renderer setting off and then on, and asserts both frames have the same pixels.
+     */
+    void assertSettingKeepsPixels(OpenGLRenderer renderer, BiConsumer<OpenGLRenderer, Boolean> setting, Consumer<OpenGLRenderer> scene) {
+        setting.accept(renderer, false);
+        int[] off = render(renderer, scene);
+        setting.accept(renderer, true);
+        int[] on = render(renderer, scene);
+        assertArrayEquals(off, on);
+    }
+
+    private int[] render(OpenGLRenderer renderer, Consumer<OpenGLRenderer> scene) {
+        clear();
+        scene.accept(renderer);
+        renderer.flush();
+        return capturePixels();
+    }
+
+    @Override
+    public void close() {
+        if (offscreenFramebuffer != null) {
+            offscreenFramebuffer.destroy();
+        }
+        GLFW.glfwDestroyWindow(window);
+        GLFW.glfwTerminate();
+        errorCallback.release();
+    }
+}
@@ -0,0 +1,149 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.util.IOUtil;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Packs glyphs into pages small enough to fill up, with the font loaded but no GL context.
+ */
+public class GlyphAtlasTest {
+
+    private static final int FONT = 0;
+
+    private GlyphAtlas atlas;
+    private ByteBuffer ttf;
+
+    private GlyphAtlas createAtlas(int pageSize, int maxPages) throws IOException {
+        ttf = IOUtil.ioResourceToByteBuffer(OpenGLTTFRenderer.FONT_FILE, 160 * 1024);
+        atlas = new GlyphAtlas(pageSize, maxPages);
+        atlas.addFont(ttf, 13, 1, 1);
+        return atlas;
+    }
+
+    @After
+    public void destroy() {
+        atlas.destroy();
+    }
+
+    @Test
+    public void glyphsArePackedOnFirstUse() throws IOException {
+        createAtlas(512, 1);
+
+        int slot = atlas.getGlyph(FONT, 'A');
+
+        assertTrue(slot >= 0);
+        assertEquals(slot, atlas.getGlyph(FONT, 'A'));
+        assertTrue(atlas.getMetrics().getAdvance(slot) > 0);
+        assertTrue(atlas.getMetrics().getS1(slot) > atlas.getMetrics().getS0(slot));
+    }
+
+    @Test
+    public void controlCharactersHaveNoGlyph() throws IOException {
+        createAtlas(512, 1);
+
+        assertEquals(-1, atlas.getGlyph(FONT, '\n'));
+    }
+
+    @Test
+    public void pagesAreAddedUpToTheMaximumThenTheLeastRecentlyUsedIsEvicted() throws IOException {
+        createAtlas(32, 2);
+        char character = 'A';
+        while (atlas.getPageCount() < 2) {
+            atlas.getGlyph(FONT, character++);
+        }
+        atlas.endFrame();
+        char onSecondPage = (char) (character - 1);
+        int slot = atlas.getGlyph(FONT, onSecondPage);
+        long generation = atlas.getGeneration();
+
+        while (atlas.getEvictions() == 0) {
+            atlas.getGlyph(FONT, character++);
+        }
+
+        assertEquals(2, atlas.getPageCount());
+        assertNotEquals(generation, atlas.getGeneration());
+//      the second page was used in this frame, the first one is evicted
+        assertEquals(slot, atlas.getMetrics().find(onSecondPage));
+        assertEquals(GlyphMetrics.NOT_FOUND, atlas.getMetrics().find('A'));
+    }
+
+    @Test
+    public void pagesUsedInTheCurrentFrameAreNotEvicted() throws IOException {
+        createAtlas(32, 1);
+        char character = 'A';
+        while (atlas.getPageCount() < 2) {
+            atlas.getGlyph(FONT, character++);
+        }
+
+        assertEquals(0, atlas.getEvictions());
+        assertTrue(atlas.getGlyph(FONT, 'A') >= 0);
+    }
+
+    @Test
+    public void fontsAndSizesShareAPage() throws IOException {
+        createAtlas(512, 1);
+        int large = atlas.addFont(ttf, 26, 1, 1);
+
+        int small = atlas.getGlyph(FONT, 'A');
+        int slot = atlas.getGlyph(large, 'A');
+
+        assertNotEquals(small, slot);
+        assertEquals(1, atlas.getPageCount());
+        assertEquals(atlas.getMetrics().getPage(small), atlas.getMetrics().getPage(slot));
+        assertTrue(atlas.getMetrics().getAdvance(slot) > atlas.getMetrics().getAdvance(small));
+    }
+
+    @Test
+    public void oversampledGlyphsAreNotAlignedToWholePixels() throws IOException {
+        createAtlas(512, 1);
+        int oversampled = atlas.addFont(ttf, 13, 2, 2);
+
+        int slot = atlas.getGlyph(oversampled, 'A');
+
+        GlyphMetrics metrics = atlas.getMetrics();
+        assertEquals(0.25f, metrics.getX0(slot, 0.25f) - metrics.getX0(slot, 0), 0.0001f);
+        assertEquals(metrics.getAdvance(atlas.getGlyph(FONT, 'A')), metrics.getAdvance(slot), 1);
+    }
+
+    @Test
+    public void oversampledFontsArePackedOnPagesOfTheirOwn() throws IOException {
+        createAtlas(512, 4);
+        int oversampled = atlas.addFont(ttf, 13, 2, 2);
+        GlyphMetrics metrics = atlas.getMetrics();
+
+        int aligned = atlas.getGlyph(FONT, 'A');
+        int slot = atlas.getGlyph(oversampled, 'A');
+
+        assertEquals(2, atlas.getPageCount());
+        assertNotEquals(metrics.getPage(aligned), metrics.getPage(slot));
+        assertEquals(metrics.getPage(aligned), metrics.getPage(atlas.getGlyph(FONT, 'B')));
+        assertEquals(metrics.getPage(slot), metrics.getPage(atlas.getGlyph(oversampled, 'B')));
+    }
+
+    @Test
+    public void aGlyphThatDoesNotFitLeavesThePageToSmallerGlyphs() throws IOException {
+        createAtlas(128, 4);
+        int huge = atlas.addFont(ttf, 140, 1, 1);
+        GlyphMetrics metrics = atlas.getMetrics();
+//      fills the top of the first page, the huge glyph only fits an empty page
+        for (char character = 'A'; character <= 'Z'; character++) {
+            atlas.getGlyph(FONT, character);
+            atlas.getGlyph(FONT, Character.toLowerCase(character));
+        }
+        assertEquals(1, atlas.getPageCount());
+
+        int slot = atlas.getGlyph(huge, 'W');
+
+        assertEquals(1, metrics.getPage(slot));
+        assertEquals(0, metrics.getPage(atlas.getGlyph(FONT, '0')));
+        assertEquals(2, atlas.getPageCount());
+    }
+}
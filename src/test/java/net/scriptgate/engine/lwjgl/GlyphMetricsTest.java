@@ -0,0 +1,86 @@
+package net.scriptgate.engine.lwjgl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GlyphMetricsTest {
+
+    private static final float DELTA = 1e-6f;
+
+    private final GlyphMetrics metrics = new GlyphMetrics(2);
+
+    @Test
+    public void quadsAreRoundedLikeStbttGetPackedQuad() {
+        int a = metrics.add('a', 0, 0.4f, -8.6f, 6, 9, 6.7f, 0, 0, 0, 0, true);
+        int b = metrics.add('b', 0, -0.6f, -7.4f, 5, 11, 5.2f, 0, 0, 0, 0, true);
+
+        assertEquals(0, metrics.getX0(a, 0), DELTA);
+        assertEquals(6, metrics.getX1(a, 0), DELTA);
+        assertEquals(-9, metrics.getY0(a), DELTA);
+        assertEquals(0, metrics.getY1(a), DELTA);
+
+//      floor(6.7 - 0.6 + 0.5) = 6
+        assertEquals(6, metrics.getX0(b, 6.7f), DELTA);
+        assertEquals(11, metrics.getX1(b, 6.7f), DELTA);
+        assertEquals(-7, metrics.getY0(b), DELTA);
+        assertEquals(4, metrics.getY1(b), DELTA);
+        assertEquals(5.2f, metrics.getAdvance(b), DELTA);
+    }
+
+    @Test
+    public void oversampledQuadsAreNotRounded() {
+        int a = metrics.add('a', 0, 0.4f, -8.6f, 6.5f, 9, 6.7f, 0, 0, 0, 0, false);
+
+        assertEquals(7.1f, metrics.getX0(a, 6.7f), DELTA);
+        assertEquals(13.6f, metrics.getX1(a, 6.7f), DELTA);
+        assertEquals(-8.6f, metrics.getY0(a), DELTA);
+        assertEquals(0.4f, metrics.getY1(a), DELTA);
+    }
+
+    @Test
+    public void glyphsAreFoundByCodePoint() {
+        int a = metrics.add('a', 0, 0, 0, 1, 1, 1, 0.25f, 0.5f, 0.75f, 1, true);
+        int smiley = metrics.add(0x1F600, 1, 0, 0, 1, 1, 1, 0, 0, 0, 0, true);
+        metrics.addMissing('\u4E00');
+
+        assertEquals(a, metrics.find('a'));
+        assertEquals(smiley, metrics.find(0x1F600));
+        assertEquals(1, metrics.getPage(smiley));
+        assertEquals(0.75f, metrics.getS1(a), DELTA);
+        assertEquals(GlyphMetrics.MISSING, metrics.find('\u4E00'));
+        assertEquals(GlyphMetrics.NOT_FOUND, metrics.find('b'));
+    }
+
+    @Test
+    public void theTableGrows() {
+        for (int codePoint = 32; codePoint < 1032; codePoint++) {
+            metrics.add(codePoint, codePoint % 3, codePoint, 0, 1, 1, 1, 0, 0, 0, 0, true);
+        }
+        for (int codePoint = 32; codePoint < 1032; codePoint++) {
+            int slot = metrics.find(codePoint);
+            assertEquals(codePoint % 3, metrics.getPage(slot));
+            assertEquals(codePoint, metrics.getX0(slot, 0), DELTA);
+        }
+    }
+
+    @Test
+    public void removingAPageForgetsItsGlyphsAndReusesTheirSlots() {
+        int a = metrics.add('a', 0, 0, 0, 1, 1, 1, 0, 0, 0, 0, true);
+        int b = metrics.add('b', 1, 0, 0, 1, 1, 1, 0, 0, 0, 0, true);
+        metrics.addMissing('\u4E00');
+
+        metrics.removePage(0);
+
+        assertEquals(GlyphMetrics.NOT_FOUND, metrics.find('a'));
+        assertEquals(b, metrics.find('b'));
+        assertEquals(GlyphMetrics.MISSING, metrics.find('\u4E00'));
+        assertEquals(a, metrics.add('c', 1, 0, 0, 1, 1, 1, 0, 0, 0, 0, true));
+        assertEquals(a, metrics.find('c'));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new GlyphMetrics(0);
+    }
+}
@@ -0,0 +1,92 @@
+package net.scriptgate.engine.lwjgl;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares rendered frames with reference images stored in {@code src/test/resources/golden}.
+ * <p>
+ * Pixels may differ by {@code tolerance} per channel, drivers do not rasterize antialiased text and lines identically.
+ * When a frame does not match, the frame and an image highlighting the differing pixels are written to
+ * {@code build/golden}. Run with {@code -Dgolden.update=true} to write every frame to {@code build/golden}
+ * as a new reference instead of comparing it, and copy the frames that are correct into
+ * {@code src/test/resources/golden} after an intended change. A frame without a reference is written
+ * the same way and its comparison is skipped, none are committed until they are made with the driver CI runs.
+ */
+class GoldenImage {
+
+    private static final File REFERENCE_FOLDER = new File("src/test/resources/golden");
+    private static final File OUTPUT_FOLDER = new File("build/golden");
+
+    private static final int MATCH = 0xFF000000;
+    private static final int MISMATCH = 0xFFFF00FF;
+
+    private final int tolerance;
+
+    GoldenImage(int tolerance) {
+        if (tolerance < 0 || tolerance > 255) {
+            throw new IllegalArgumentException("Tolerance must be between 0 and 255: " + tolerance);
+        }
+        this.tolerance = tolerance;
+    }
+
+    void assertMatches(String name, BufferedImage frame) throws IOException {
+        File reference = new File(REFERENCE_FOLDER, name + ".png");
+        File update = new File(OUTPUT_FOLDER, name + ".png");
+        if (Boolean.getBoolean("golden.update")) {
+            write(frame, update);
+            assumeTrue("Wrote new reference image " + update, false);
+        }
+        if (!reference.exists()) {
+            write(frame, update);
+            assumeTrue(String.format("%s: no reference image %s, the frame was written to %s", name, reference, update), false);
+        }
+
+        BufferedImage expected = ImageIO.read(reference);
+        if (expected.getWidth() != frame.getWidth() || expected.getHeight() != frame.getHeight()) {
+            write(frame, new File(OUTPUT_FOLDER, name + "-actual.png"));
+            fail(String.format("%s: expected a %dx%d frame, was %dx%d", name,
+                    expected.getWidth(), expected.getHeight(), frame.getWidth(), frame.getHeight()));
+        }
+
+        BufferedImage diff = new BufferedImage(frame.getWidth(), frame.getHeight(), BufferedImage.TYPE_INT_RGB);
+        int mismatches = 0;
+        for (int y = 0; y < frame.getHeight(); y++) {
+            for (int x = 0; x < frame.getWidth(); x++) {
+                if (matches(expected.getRGB(x, y), frame.getRGB(x, y))) {
+                    diff.setRGB(x, y, MATCH);
+                } else {
+                    diff.setRGB(x, y, MISMATCH);
+                    mismatches++;
+                }
+            }
+        }
+
+        if (mismatches > 0) {
+            write(frame, new File(OUTPUT_FOLDER, name + "-actual.png"));
+            write(diff, new File(OUTPUT_FOLDER, name + "-diff.png"));
+            fail(String.format("%s: %d pixels differ by more than %d from %s, see %s", name, mismatches, tolerance, reference, OUTPUT_FOLDER));
+        }
+    }
+
+    private boolean matches(int expected, int actual) {
+        for (int shift = 0; shift < 24; shift += 8) {
+            int difference = ((expected >> shift) & 0xFF) - ((actual >> shift) & 0xFF);
+            if (Math.abs(difference) > tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void write(BufferedImage image, File file) throws IOException {
+        //noinspection ResultOfMethodCallIgnored
+        file.getParentFile().mkdirs();
+        ImageIO.write(image, "png", file);
+    }
+}
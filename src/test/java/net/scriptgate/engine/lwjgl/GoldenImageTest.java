@@ -0,0 +1,160 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Application;
+import net.scriptgate.engine.Engine;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Renders every registered {@link RendererTest} case and demo frame headlessly with each renderer configuration
+ * and compares the frames with the same reference images, see {@link GoldenImage}.
+ * Run under Xvfb with Mesa llvmpipe on CI, the references are made with that driver.
+ */
+@RunWith(Parameterized.class)
+public class GoldenImageTest {
+
+    private static final GoldenImage GOLDEN_IMAGE = new GoldenImage(2);
+
+    @Parameters(name = "{0}")
+    public static List<Object[]> frames() {
+        List<Object[]> frames = new ArrayList<>();
+        for (Object[] frame : applicationFrames()) {
+            for (Configuration configuration : Configuration.values()) {
+                frames.add(new Object[]{frame[0] + " (" + configuration.name().toLowerCase() + ")", frame[0], frame[1], frame[2], configuration});
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * @return the name, the application supplier and the test case, or -1, of every frame that is compared
+     */
+    static List<Object[]> applicationFrames() {
+        List<Object[]> frames = new ArrayList<>();
+        addTestCases(frames, "ttf", OpenGLTTFRendererTest::new);
+        frames.add(new Object[]{"line", (Supplier<Application>) OpenGLRendererTest::new, -1});
+        frames.add(new Object[]{"trigonometry", (Supplier<Application>) OpenGLTrigonometry::new, -1});
+        return frames;
+    }
+
+    private static void addTestCases(List<Object[]> frames, String name, Supplier<RendererTest> application) {
+        int testCases = application.get().getTestCaseCount();
+        for (int i = 0; i < testCases; i++) {
+            frames.add(new Object[]{name + "-" + (i + 1), application, i});
+        }
+    }
+
+    private final String reference;
+    private final Supplier<? extends Application> applicationSupplier;
+    private final int testCase;
+    private final Configuration configuration;
+
+    public GoldenImageTest(String description, String reference, Supplier<? extends Application> applicationSupplier, int testCase, Configuration configuration) {
+        this.reference = reference;
+        this.applicationSupplier = applicationSupplier;
+        this.testCase = testCase;
+        this.configuration = configuration;
+    }
+
+    @Test
+    public void frameMatchesReference() throws IOException {
+        GOLDEN_IMAGE.assertMatches(reference, render(applicationSupplier, testCase, configuration));
+    }
+
+    /**
+     * Renders a frame of a new application in a context of its own.
+     */
+    static BufferedImage render(Supplier<? extends Application> applicationSupplier, int testCase, Configuration configuration) {
+        Application application = applicationSupplier.get();
+        application.initializeProperties();
+
+        try (GLTestContext context = new GLTestContext(Engine.WIDTH, Engine.HEIGHT, configuration.coreProfile)) {
+            GLRenderer renderer = configuration.createRenderer();
+            application.initialize();
+            if (testCase >= 0) {
+                ((RendererTest) application).selectTestCase(testCase);
+            }
+
+            context.clear();
+            application.render(renderer);
+            renderer.flush();
+            renderer.endFrame();
+            BufferedImage frame = context.capture();
+
+            application.destroy();
+            renderer.destroy();
+            return frame;
+        }
+    }
+
+    enum Configuration {
+        IMMEDIATE(false) {
+            @Override
+            GLRenderer createRenderer() {
+                OpenGLRenderer renderer = new OpenGLRenderer();
+                renderer.initialize();
+                renderer.setBatchingEnabled(false);
+                return renderer;
+            }
+        },
+        BATCHED(false) {
+            @Override
+            GLRenderer createRenderer() {
+                OpenGLRenderer renderer = new OpenGLRenderer();
+                renderer.initialize();
+                return renderer;
+            }
+        },
+        SORTED(false) {
+            @Override
+            GLRenderer createRenderer() {
+                OpenGLRenderer renderer = new OpenGLRenderer();
+                renderer.initialize();
+                renderer.setSortingEnabled(true);
+                return renderer;
+            }
+        },
+        INSTANCED(false) {
+            @Override
+            GLRenderer createRenderer() {
+                OpenGLRenderer renderer = new OpenGLRenderer();
+                renderer.initialize();
+                renderer.setInstancingEnabled(true);
+                if (!renderer.isInstancingEnabled()) {
+                    renderer.destroy();
+                }
+                assumeTrue("Instancing is not supported", renderer.isInstancingEnabled());
+                return renderer;
+            }
+        },
+        CORE_PROFILE(true) {
+            @Override
+            GLRenderer createRenderer() {
+                CoreProfileRenderer renderer = new CoreProfileRenderer();
+                renderer.initialize();
+                return renderer;
+            }
+        };
+
+        private final boolean coreProfile;
+
+        Configuration(boolean coreProfile) {
+            this.coreProfile = coreProfile;
+        }
+
+        /**
+         * @return an initialized renderer, the case is skipped when the context does not support the configuration
+         */
+        abstract GLRenderer createRenderer();
+    }
+}
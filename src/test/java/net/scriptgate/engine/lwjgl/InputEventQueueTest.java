@@ -0,0 +1,88 @@
+package net.scriptgate.engine.lwjgl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+public class InputEventQueueTest {
+
+    @Test
+    public void eventsAreDispatchedInOrderFollowedByTheLatestCursorPosition() {
+        InputEventQueue queue = new InputEventQueue();
+        queue.putKey(65, 38, 1, 0);
+        queue.moveCursor(10, 20);
+        queue.moveCursor(30, 40);
+        queue.putMouseButton(0, 1);
+        queue.moveCursor(50, 60);
+        queue.putKey(65, 38, 0, 1);
+
+        assertEquals(asList("key 65 38 1 0", "mouse 0 1 30 40", "key 65 38 0 1", "cursor 50 60"), dispatch(queue));
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void dispatchedEventsAreNotDispatchedAgain() {
+        InputEventQueue queue = new InputEventQueue();
+        queue.putKey(65, 38, 1, 0);
+        queue.moveCursor(-5, 7);
+        dispatch(queue);
+
+        assertEquals(asList(), dispatch(queue));
+
+        queue.putKey(66, 39, 1, 0);
+        assertEquals(asList("key 66 39 1 0"), dispatch(queue));
+    }
+
+    @Test
+    public void negativeCursorPositionsArePreserved() {
+        InputEventQueue queue = new InputEventQueue();
+        queue.moveCursor(-5, -7);
+
+        assertEquals(asList("cursor -5 -7"), dispatch(queue));
+    }
+
+    @Test
+    public void eventsAreDroppedWhenTheQueueIsFull() {
+        InputEventQueue queue = new InputEventQueue(2);
+        queue.putKey(1, 0, 1, 0);
+        queue.putKey(2, 0, 1, 0);
+        queue.putKey(3, 0, 1, 0);
+
+        assertEquals(asList("key 1 0 1 0", "key 2 0 1 0"), dispatch(queue));
+        assertEquals(1, queue.getDroppedEvents());
+
+        queue.putKey(4, 0, 1, 0);
+        queue.putKey(5, 0, 1, 0);
+        assertEquals(asList("key 4 0 1 0", "key 5 0 1 0"), dispatch(queue));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void capacityMustBePositive() {
+        new InputEventQueue(0);
+    }
+
+    private static List<String> dispatch(InputEventQueue queue) {
+        List<String> events = new ArrayList<>();
+        queue.dispatch(new InputEventQueue.Handler() {
+            @Override
+            public void onKey(int keyCode, int scancode, int action, int mods) {
+                events.add("key " + keyCode + " " + scancode + " " + action + " " + mods);
+            }
+
+            @Override
+            public void onMouseButton(int button, int action, int x, int y) {
+                events.add("mouse " + button + " " + action + " " + x + " " + y);
+            }
+
+            @Override
+            public void onCursorMoved(int x, int y) {
+                events.add("cursor " + x + " " + y);
+            }
+        });
+        return events;
+    }
+}
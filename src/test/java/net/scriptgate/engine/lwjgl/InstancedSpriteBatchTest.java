@@ -0,0 +1,59 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Point;
+import org.junit.Test;
+
+import static net.scriptgate.common.Color3f.*;
+import static org.junit.Assume.assumeTrue;
+
+public class InstancedSpriteBatchTest {
+
+    private static final int SIZE = 256;
+//  more than the 4096 instances the batch holds, so the instance buffer is drawn and refilled within a frame
+    private static final int TILES = 5000;
+
+    @Test
+    public void instancedSpritesMatchBatchedSprites() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.assertSettingKeepsPixels(renderer, (r, instanced) -> {
+                r.setInstancingEnabled(instanced);
+                assumeTrue("Instancing is not supported", r.isInstancingEnabled() == instanced);
+            }, InstancedSpriteBatchTest::drawScene);
+
+            renderer.destroy();
+        }
+    }
+
+    @Test
+    public void fallsBackToBatchingInImmediateMode() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+            renderer.setBatchingEnabled(false);
+
+            context.assertSettingKeepsPixels(renderer, OpenGLRenderer::setInstancingEnabled, InstancedSpriteBatchTest::drawScene);
+
+            renderer.destroy();
+        }
+    }
+
+    private static void drawScene(OpenGLRenderer renderer) {
+        Point position = new Point(0, 0);
+        Point offset = new Point(0, 0);
+        Point size = new Point(4, 4);
+        for (int i = 0; i < TILES; i++) {
+//          the tiles wrap around and overlap the first ones, in a different color, so the order of the instances shows
+            position.x = (i % 64) * 4;
+            position.y = (i / 64) * 4 % SIZE;
+            offset.x = i % 4;
+            offset.y = i / 4 % 4;
+            renderer.setColor(1 - (i % 7) / 14f, i < 64 * 64 ? WHITE : RED);
+            renderer.drawImage("images/testTile", position, offset, size);
+        }
+        renderer.setColor(1, WHITE);
+        renderer.drawText(10, 240, "Instanced");
+    }
+}
@@ -0,0 +1,51 @@
+package net.scriptgate.engine.lwjgl;
+
+import org.junit.Test;
+
+import static net.scriptgate.common.Color3f.*;
+
+public class PrimitiveBatchTest {
+
+    private static final int SIZE = 256;
+
+    @Test
+    public void batchedPrimitivesMatchImmediateMode() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.assertSettingKeepsPixels(renderer, OpenGLRenderer::setBatchingEnabled, PrimitiveBatchTest::drawScene);
+
+            renderer.destroy();
+        }
+    }
+
+    private static void drawScene(OpenGLRenderer renderer) {
+//      the color stays the same, only the switches between triangles and lines end the batch
+        renderer.setColor(0.75f, BLUE);
+        for (int i = 0; i < 32; i++) {
+            int x = (i % 8) * 32;
+            int y = (i / 8) * 32;
+            renderer.fillRect(x + 2, y + 2, 28, 28);
+            renderer.drawRect(x, y, 32, 32);
+            renderer.fillCircle(x + 16, y + 16, 6);
+            renderer.drawLine(x, y, x + 31, y + 31);
+            renderer.drawCircle(x + 16, y + 16, 10);
+        }
+//      line rects are indexed lines sharing their corners, also when they are rotated
+        renderer.setColor(1, WHITE);
+        renderer.pushTransform();
+        renderer.translate(128, 180);
+        for (int i = 0; i < 8; i++) {
+            renderer.rotate(0.2f);
+            renderer.drawRect(-40 + i * 4, -20 + i * 2, 80 - i * 8, 40 - i * 4);
+        }
+        renderer.popTransform();
+        renderer.setColor(0.5f, GREEN);
+        renderer.fillRect(10, 220, 100, 20);
+        renderer.drawRect(10, 220, 100, 20);
+        renderer.setColor(0.5f, RED);
+        renderer.fillCircle(200, 220, 30);
+        renderer.drawCircle(200, 220, 34);
+    }
+}
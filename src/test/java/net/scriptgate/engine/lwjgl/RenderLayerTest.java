@@ -0,0 +1,82 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.Renderer;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.scriptgate.common.Color3f.*;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class RenderLayerTest {
+
+    private static final int SIZE = 256;
+
+    private static void drawPanel(Renderer renderer) {
+        renderer.setColor(1, BLUE);
+        renderer.fillRect(0, 0, 100, 80);
+        renderer.setColor(1, WHITE);
+        renderer.drawRect(0, 0, 100, 80);
+        renderer.drawImage(50, 20, "images/testTile");
+        renderer.setColor(1, RED);
+        renderer.fillCircle(20, 60, 10);
+        renderer.drawLine(0, 79, 99, 0);
+    }
+
+    @Test
+    public void layerLooksLikeItsContent() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.clear();
+            renderer.translate(30, 40);
+            drawPanel(renderer);
+            renderer.translate(-30, -40);
+            renderer.flush();
+            int[] direct = context.capturePixels();
+
+            RenderLayer layer = new RenderLayer(100, 80, RenderLayerTest::drawPanel);
+            context.clear();
+            renderer.setColor(1, WHITE);
+            layer.draw(renderer, 30, 40);
+            renderer.flush();
+            int[] layered = context.capturePixels();
+
+            layer.destroy();
+            renderer.destroy();
+
+            assertArrayEquals(direct, layered);
+        }
+    }
+
+    @Test
+    public void contentIsOnlyRenderedWhenDirty() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+            AtomicInteger renders = new AtomicInteger();
+            RenderLayer layer = new RenderLayer(100, 80, r -> {
+                renders.incrementAndGet();
+                drawPanel(r);
+            });
+
+            layer.draw(renderer, 0, 0);
+            layer.draw(renderer, 100, 100);
+            assertEquals(1, renders.get());
+
+            layer.markDirty();
+            context.clear();
+            renderer.setColor(1, WHITE);
+            layer.draw(renderer, 0, 0);
+            renderer.flush();
+            assertEquals(2, renders.get());
+//          the panel is filled blue, away from its border, line, circle and image
+            assertEquals(0x0000FF, context.capturePixels()[10 * SIZE + 10] & 0xFFFFFF);
+
+            layer.destroy();
+            renderer.destroy();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.gl.GLState;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RenderStatisticsTest {
+
+    private final RenderStatistics statistics = new RenderStatistics();
+
+    @Before
+    public void resetCounters() {
+        GLState.resetCounters();
+    }
+
+    @Test
+    public void endFramePublishesTheCountersOfTheFrame() {
+        GLState.countDrawCall(6);
+        GLState.countDrawCall(400);
+
+        statistics.endFrame(1_000_000, 250_000);
+
+        assertEquals(1, statistics.getFrames());
+        assertEquals(1_000_000, statistics.getRenderNanos());
+        assertEquals(250_000, statistics.getSwapNanos());
+        assertEquals(2, statistics.getDrawCalls());
+        assertEquals(406, statistics.getVertices());
+    }
+
+    @Test
+    public void countersStartOverEveryFrame() {
+        GLState.countDrawCall(6);
+        statistics.endFrame(0, 0);
+
+        statistics.endFrame(0, 0);
+
+        assertEquals(2, statistics.getFrames());
+        assertEquals(0, statistics.getDrawCalls());
+        assertEquals(0, statistics.getVertices());
+    }
+
+    @Test
+    public void statisticsAreReadableThroughJmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(RenderStatistics.OBJECT_NAME);
+
+        statistics.register();
+        try {
+            GLState.countDrawCall(4);
+            statistics.endFrame(0, 0);
+            assertEquals(1L, server.getAttribute(name, "DrawCalls"));
+        } finally {
+            statistics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void unregisteringTwiceIsHarmless() throws Exception {
+        statistics.register();
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(RenderStatistics.OBJECT_NAME)));
+        statistics.unregister();
+        statistics.unregister();
+    }
+}
@@ -88,6 +88,14 @@ public abstract class RendererTest implements Application {
         renderer.setColor(1, WHITE);
     }
 
+    int getTestCaseCount() {
+        return testCases.size();
+    }
+
+    void selectTestCase(int index) {
+        testCase = testCases.get(index);
+    }
+
     private String getTestCaseDescription() {
         int testIndex = testCases.indexOf(testCase) + 1;
         return "Test Method (" + testIndex + "/" + testCases.size() + "): " + testCase.description;
@@ -0,0 +1,46 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Point;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import org.junit.Test;
+
+import static net.scriptgate.common.Color3f.*;
+
+public class SpriteBatchTest {
+
+    private static final int SIZE = 256;
+//  two glyphs of this font do not fit on one atlas page
+    private static final int HUGE_FONT = Fonts.register(OpenGLTTFRenderer.FONT_FILE, 600);
+
+    @Test
+    public void batchedSpritesMatchImmediateMode() {
+        try (GLTestContext context = new GLTestContext(SIZE, SIZE)) {
+            OpenGLRenderer renderer = new OpenGLRenderer();
+            renderer.initialize();
+
+            context.assertSettingKeepsPixels(renderer, OpenGLRenderer::setBatchingEnabled, SpriteBatchTest::drawScene);
+
+            renderer.destroy();
+        }
+    }
+
+    private static void drawScene(OpenGLRenderer renderer) {
+//      images and text alternate between the tile and a glyph page, every call ends a run of quads
+        for (int i = 0; i < 32; i++) {
+            int x = (i % 8) * 32;
+            int y = (i / 8) * 32;
+            renderer.setColor(1 - i / 64f, i % 3 == 0 ? RED : WHITE);
+            renderer.drawImage(x, y, "images/testTile");
+            renderer.drawText(x, y + 28, "ab");
+        }
+        renderer.setColor(1, WHITE);
+        for (int i = 0; i < 16; i++) {
+            renderer.drawImage("images/testTile", new Point(i * 16, 140), new Point(i % 4, i % 4), new Point(8, 8));
+        }
+//      a single text whose glyphs are split into runs on different pages
+        renderer.setColor(0.75f, GREEN);
+        renderer.setFont(HUGE_FONT);
+        renderer.drawText(-300, 420, "AB");
+        renderer.setFont(Fonts.DEFAULT);
+    }
+}
@@ -0,0 +1,56 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.gl.StreamBuffer;
+import org.junit.Test;
+import org.lwjgl.BufferUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamBufferTest {
+
+    private static final int REGION_SIZE = 1024;
+
+    @Test
+    public void writesDoNotOverlapAndAreCounted() {
+//      the stream buffer only needs a current context, which stays open until the end of the test
+        GLTestContext context = new GLTestContext(64, 64);
+        try {
+            StreamBuffer streamBuffer = new StreamBuffer(REGION_SIZE);
+            streamBuffer.initialize();
+            FloatBuffer floats = BufferUtils.createFloatBuffer(25);
+            ShortBuffer shorts = BufferUtils.createShortBuffer(3);
+
+            long previousEnd = -1;
+            long streamed = 0;
+            for (int frame = 0; frame < 10; frame++) {
+                for (int i = 0; i < 4; i++) {
+                    long floatOffset = streamBuffer.put(floats);
+                    long shortOffset = streamBuffer.put(shorts);
+                    assertEquals(0, floatOffset % 4);
+                    assertEquals(0, shortOffset % 4);
+                    assertTrue(shortOffset >= floatOffset + floats.remaining() * Float.BYTES || shortOffset < floatOffset);
+                    assertTrue(floatOffset > previousEnd || floatOffset < previousEnd - REGION_SIZE);
+                    previousEnd = shortOffset + shorts.remaining() * Short.BYTES;
+                    streamed += floats.remaining() * Float.BYTES + shorts.remaining() * Short.BYTES;
+                }
+                streamBuffer.endFrame();
+                assertEquals(streamed, streamBuffer.getBytesStreamed());
+                streamed = 0;
+            }
+            assertEquals(25, floats.remaining());
+
+            streamBuffer.destroy();
+        } finally {
+            context.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reservationMustFitInARegion() {
+        new StreamBuffer(REGION_SIZE).reserve(REGION_SIZE + 1);
+    }
+}
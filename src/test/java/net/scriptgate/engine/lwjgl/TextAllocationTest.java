@@ -0,0 +1,97 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.lwjgl.command.CommandBufferRenderer;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Draws and measures text repeatedly and checks the thread did not allocate, with the font baked but no GL context.
+ */
+public class TextAllocationTest {
+
+    private static final int CALLS = 10_000;
+
+    private final OpenGLTTFRenderer fontRenderer = new OpenGLTTFRenderer();
+    private final Rectangle bounds = new Rectangle(0, 0, 0, 0);
+    private final StringBuilder score = new StringBuilder("Score: 0000");
+    private int drawnGlyphs;
+    private final OpenGLTTFRenderer.GlyphRenderer glyphRenderer = (textureId, quads, glyphCount, x, baseline, textBounds) -> drawnGlyphs += glyphCount;
+
+    @Before
+    public void bakeFont() throws IOException {
+        fontRenderer.bakeFont();
+    }
+
+    @After
+    public void destroy() {
+        fontRenderer.destroy();
+    }
+
+    @Test
+    public void measuringTextDoesNotAllocate() {
+        assertDoesNotAllocate(() -> {
+            fontRenderer.getBounds(Fonts.DEFAULT, 10, 15, "Test all characters", bounds);
+            fontRenderer.getBounds(Fonts.DEFAULT, 10, 15, nextScore(), bounds);
+        });
+        assertEquals(10, bounds.x);
+    }
+
+    @Test
+    public void drawingTextDoesNotAllocate() {
+        assertDoesNotAllocate(() -> {
+            fontRenderer.render(glyphRenderer, Fonts.DEFAULT, 10, 15, "Test all characters", bounds);
+            fontRenderer.render(glyphRenderer, Fonts.DEFAULT, 10, 15, nextScore(), bounds);
+        });
+        assertEquals((CALLS + 1) * ("Test all characters".length() + score.length()), drawnGlyphs);
+    }
+
+    @Test
+    public void recordingTextDoesNotAllocate() {
+        CommandBufferRenderer commandBuffer = new CommandBufferRenderer(fontRenderer);
+        assertDoesNotAllocate(() -> {
+            commandBuffer.clear();
+            commandBuffer.drawText(10, 15, nextScore(), bounds);
+            commandBuffer.getBounds(10, 15, nextScore(), bounds);
+        });
+        assertEquals(10, bounds.x);
+    }
+
+    private CharSequence nextScore() {
+        for (int digit = score.length() - 1; ; digit--) {
+            char value = score.charAt(digit);
+            score.setCharAt(digit, value == '9' ? '0' : (char) (value + 1));
+            if (value != '9') {
+                return score;
+            }
+        }
+    }
+
+    private static void assertDoesNotAllocate(Runnable calls) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported());
+        threads.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+//      fills the layout cache and the quad buffer, and lets getThreadAllocatedBytes allocate what it needs once
+        calls.run();
+        threads.getThreadAllocatedBytes(thread);
+
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < CALLS; i++) {
+            calls.run();
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+//      compiling the calls allocates a few hundred bytes on this thread, any object allocated per call adds at least 16 bytes per call
+        assertTrue(allocated + " bytes allocated by " + CALLS + " calls", allocated < CALLS);
+    }
+}
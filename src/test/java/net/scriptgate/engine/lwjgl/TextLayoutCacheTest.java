@@ -0,0 +1,97 @@
+package net.scriptgate.engine.lwjgl;
+
+import net.scriptgate.engine.lwjgl.batch.SpriteBatch;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TextLayoutCacheTest {
+
+    private static final int FONT = 0;
+
+    private final TextLayoutCache.Layouter layout = (font, text) ->
+            new TextLayout(new float[text.length() * SpriteBatch.FLOATS_PER_QUAD], new int[text.length()], text.length(), text.length() * 8, 10, 3);
+
+    private static int memoryUsage(String text) {
+        return TextLayoutCache.ENTRY_OVERHEAD + text.length() * (SpriteBatch.FLOATS_PER_QUAD * Float.BYTES + Integer.BYTES + Character.BYTES);
+    }
+
+    @Test
+    public void repeatedTextIsLaidOutOnce() {
+        TextLayoutCache cache = new TextLayoutCache();
+        TextLayout score = cache.get(FONT, "Score", layout);
+
+        assertSame(score, cache.get(FONT, "Score", layout));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getSize());
+        assertEquals(memoryUsage("Score"), cache.getMemoryUsed());
+    }
+
+    @Test
+    public void leastRecentlyUsedLayoutsAreEvictedOverBudget() {
+        TextLayoutCache cache = new TextLayoutCache(memoryUsage("ab") * 2);
+        TextLayout ab = cache.get(FONT, "ab", layout);
+        cache.get(FONT, "cd", layout);
+        cache.get(FONT, "ab", layout);
+        cache.get(FONT, "ef", layout);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.getSize());
+        assertSame(ab, cache.get(FONT, "ab", layout));
+        assertEquals(3, cache.getMisses());
+        cache.get(FONT, "cd", layout);
+        assertEquals(4, cache.getMisses());
+    }
+
+    @Test
+    public void loweringTheBudgetEvicts() {
+        TextLayoutCache cache = new TextLayoutCache();
+        cache.get(FONT, "ab", layout);
+        cache.get(FONT, "cd", layout);
+
+        cache.setMemoryBudget(memoryUsage("cd"));
+
+        assertEquals(1, cache.getSize());
+        assertEquals(memoryUsage("cd"), cache.getMemoryUsed());
+    }
+
+    @Test
+    public void aBudgetOfZeroKeepsNothing() {
+        TextLayoutCache cache = new TextLayoutCache(0);
+        TextLayout first = cache.get(FONT, "Score", layout);
+
+        assertNotSame(first, cache.get(FONT, "Score", layout));
+        assertEquals(0, cache.getSize());
+        assertEquals(2, cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void layoutsAreCachedPerFont() {
+        TextLayoutCache cache = new TextLayoutCache();
+        TextLayout score = cache.get(FONT, "Score", layout);
+
+        assertNotSame(score, cache.get(FONT + 1, "Score", layout));
+        assertSame(score, cache.get(FONT, "Score", layout));
+        assertEquals(2, cache.getSize());
+        assertEquals(2, cache.getMisses());
+    }
+
+    @Test
+    public void boundsAreRelativeToTheBaselineBelowY() {
+        TextLayout score = layout.layout(FONT, "Score");
+
+        assertEquals(4, score.getBounds(4, 20).x);
+        assertEquals(11, score.getBounds(4, 20).y);
+        assertEquals(40, score.getBounds(4, 20).width);
+        assertEquals(13, score.getBounds(4, 20).height);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void budgetCannotBeNegative() {
+        new TextLayoutCache(-1);
+    }
+}
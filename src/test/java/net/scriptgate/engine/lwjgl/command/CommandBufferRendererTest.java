@@ -0,0 +1,150 @@
+package net.scriptgate.engine.lwjgl.command;
+
+import net.scriptgate.common.Point;
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.Renderer;
+import net.scriptgate.engine.lwjgl.RenderLayer;
+import net.scriptgate.engine.lwjgl.geometry.Transformable;
+import net.scriptgate.engine.lwjgl.text.FontSelectable;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class CommandBufferRendererTest {
+
+    private static final int LARGE_FONT = Fonts.register("fonts/RedAlert.ttf", 26);
+
+    private static void drawFrame(Renderer renderer) {
+        renderer.setColor(1, 0.5f, 0.25f);
+        renderer.fillRect(1, 2, 3, 4);
+        renderer.drawRect(5, 6, 7, 8);
+        renderer.setColor(0.5f, 1, 1, 1);
+        renderer.drawLine(-1, -2, 300, 400);
+        renderer.translate(10, 20);
+        renderer.drawImage(16, 32, "images/testTile");
+        renderer.drawImage("images/testTile", new Point(1, 2), new Point(3, 4), new Point(5, 6));
+        renderer.drawCircle(50, 60, 70);
+        renderer.fillCircle(80, 90, 5);
+        renderer.setOpacity(0.75f);
+        renderer.drawText(100, 110, "Deferred");
+        renderer.translate(-10, -20);
+        Transformable transformable = (Transformable) renderer;
+        transformable.pushTransform();
+        transformable.scale(2, 0.5f);
+        transformable.rotate(0.25f);
+        renderer.fillRect(0, 0, 10, 10);
+        transformable.popTransform();
+        ((FontSelectable) renderer).setFont(LARGE_FONT);
+        renderer.drawText(0, 0, "Large");
+    }
+
+    @Test
+    public void replayIssuesTheRecordedCallsInOrder() {
+        RecordingRenderer direct = new RecordingRenderer();
+        drawFrame(direct);
+
+        CommandBufferRenderer commandBuffer = new CommandBufferRenderer(new RecordingRenderer());
+        drawFrame(commandBuffer);
+        RecordingRenderer replayed = new RecordingRenderer();
+        commandBuffer.replay(replayed);
+
+        assertEquals(direct.calls, replayed.calls);
+        assertEquals(direct.calls.size(), commandBuffer.getCommandCount());
+    }
+
+    @Test
+    public void layerContentIsRecordedWithTheFrameUntilItIsDirty() {
+        AtomicInteger recordings = new AtomicInteger();
+        RenderLayer layer = new RenderLayer(100, 80, renderer -> {
+            recordings.incrementAndGet();
+            renderer.fillRect(0, 0, 100, 80);
+        });
+        CommandBufferRenderer commandBuffer = new CommandBufferRenderer(new RecordingRenderer());
+
+        layer.draw(commandBuffer, 10, 20);
+        layer.draw(commandBuffer, 30, 40);
+        RecordingRenderer replayed = new RecordingRenderer();
+        commandBuffer.replay(replayed);
+
+        assertEquals(1, recordings.get());
+        assertEquals(Arrays.asList(
+                "translate 10 20", "fillRect 0 0 100 80", "translate -10 -20",
+                "translate 30 40", "fillRect 0 0 100 80", "translate -30 -40"), replayed.calls);
+
+        layer.markDirty();
+        layer.draw(commandBuffer, 0, 0);
+        assertEquals(2, recordings.get());
+    }
+
+    @Test
+    public void drawTextReturnsTheMeasuredBounds() {
+        CommandBufferRenderer commandBuffer = new CommandBufferRenderer(new RecordingRenderer());
+
+        Rectangle bounds = commandBuffer.drawText(10, 20, "abc");
+
+        assertEquals(10, bounds.x);
+        assertEquals(11, bounds.y);
+        assertEquals(18, bounds.width);
+        assertEquals(10, bounds.height);
+    }
+
+    @Test
+    public void textIsMeasuredInTheSelectedFontUntilTheBufferIsCleared() {
+        CommandBufferRenderer commandBuffer = new CommandBufferRenderer(new RecordingRenderer());
+
+        commandBuffer.setFont(LARGE_FONT);
+        Rectangle large = commandBuffer.drawText(10, 20, "abc");
+        commandBuffer.clear();
+        Rectangle small = commandBuffer.drawText(10, 20, "abc");
+
+        assertEquals(18 * (LARGE_FONT + 1), large.width);
+        assertEquals(18, small.width);
+        assertEquals(Fonts.DEFAULT, commandBuffer.getFont());
+    }
+
+    @Test
+    public void characterSequencesAreCopiedWhenRecorded() {
+        CommandBufferRenderer commandBuffer = new CommandBufferRenderer(new RecordingRenderer());
+        StringBuilder score = new StringBuilder("Score 10");
+        Rectangle bounds = new Rectangle(0, 0, 0, 0);
+
+        commandBuffer.setFont(LARGE_FONT);
+        commandBuffer.drawText(10, 20, score, bounds);
+        score.setLength(0);
+        score.append("Score 2000");
+        RecordingRenderer replayed = new RecordingRenderer();
+        commandBuffer.replay(replayed);
+
+        assertEquals("drawText 10 20 Score 10", replayed.calls.get(1));
+        assertEquals(48 * (LARGE_FONT + 1), bounds.width);
+        assertEquals(1 + 4 + 1 + 12 + 8 * Character.BYTES, commandBuffer.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownFontsCannotBeSelected() {
+        new CommandBufferRenderer(new RecordingRenderer()).setFont(-1);
+    }
+
+    @Test
+    public void bufferGrowsAndCanBeReused() {
+        CommandBufferRenderer commandBuffer = new CommandBufferRenderer(new RecordingRenderer(), 16);
+        for (int i = 0; i < 1000; i++) {
+            commandBuffer.fillRect(i, i, 1, 1);
+        }
+        RecordingRenderer replayed = new RecordingRenderer();
+        commandBuffer.replay(replayed);
+        assertEquals(1000, replayed.calls.size());
+        assertEquals("fillRect 999 999 1 1", replayed.calls.get(999));
+
+        commandBuffer.clear();
+        commandBuffer.drawText(0, 0, "again");
+        replayed = new RecordingRenderer();
+        commandBuffer.replay(replayed);
+        assertEquals(1, replayed.calls.size());
+        assertEquals(13, commandBuffer.size());
+    }
+}
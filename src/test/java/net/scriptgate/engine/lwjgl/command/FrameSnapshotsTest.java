@@ -0,0 +1,94 @@
+package net.scriptgate.engine.lwjgl.command;
+
+import net.scriptgate.common.Rectangle;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+public class FrameSnapshotsTest {
+
+    private final FrameSnapshots snapshots = new FrameSnapshots((font, x, y, text) -> new Rectangle(x, y, text.length(), 1));
+
+    @Test
+    public void takeReturnsThePublishedFrame() {
+        recordFrame(3);
+
+        CommandBufferRenderer frame = snapshots.take();
+
+        assertEquals(3, frame.getCommandCount());
+        assertNotSame(frame, snapshots.beginFrame());
+    }
+
+    @Test
+    public void publishWaitsUntilThePreviousFrameIsTaken() throws Exception {
+        recordFrame(1);
+
+        CompletableFuture<Void> next = CompletableFuture.runAsync(() -> recordFrame(2));
+        Thread.sleep(50);
+        assertFalse(next.isDone());
+
+        assertEquals(1, snapshots.take().getCommandCount());
+        next.get(1, TimeUnit.SECONDS);
+        assertEquals(2, snapshots.take().getCommandCount());
+    }
+
+    @Test
+    public void recordingDoesNotTouchTheFrameBeingDrawn() {
+        recordFrame(1);
+        CommandBufferRenderer drawing = snapshots.take();
+
+        recordFrame(4);
+        snapshots.beginFrame().fillRect(0, 0, 10, 10);
+
+        assertEquals(1, drawing.getCommandCount());
+        assertEquals(4, snapshots.take().getCommandCount());
+    }
+
+    @Test
+    public void takeWaitsForTheNextFrame() throws Exception {
+        recordFrame(1);
+        snapshots.take();
+
+        CompletableFuture<CommandBufferRenderer> next = CompletableFuture.supplyAsync(snapshots::take);
+        Thread.sleep(50);
+        assertFalse(next.isDone());
+
+        recordFrame(2);
+        assertEquals(2, next.get(1, TimeUnit.SECONDS).getCommandCount());
+    }
+
+    @Test
+    public void closeStopsTheWaitToPublish() throws Exception {
+        recordFrame(1);
+        CompletableFuture<Void> next = CompletableFuture.runAsync(() -> recordFrame(2));
+        Thread.sleep(50);
+
+        snapshots.close();
+
+        next.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void closeStopsTheWait() throws Exception {
+        CompletableFuture<CommandBufferRenderer> next = CompletableFuture.supplyAsync(snapshots::take);
+        Thread.sleep(50);
+
+        snapshots.close();
+
+        assertNull(next.get(1, TimeUnit.SECONDS));
+    }
+
+    private void recordFrame(int commands) {
+        CommandBufferRenderer frame = snapshots.beginFrame();
+        for (int i = 0; i < commands; i++) {
+            frame.fillRect(i, i, 10, 10);
+        }
+        snapshots.publish();
+    }
+}
@@ -0,0 +1,144 @@
+package net.scriptgate.engine.lwjgl.command;
+
+import net.scriptgate.common.Point;
+import net.scriptgate.common.Rectangle;
+import net.scriptgate.engine.Renderer;
+import net.scriptgate.engine.lwjgl.geometry.Transformable;
+import net.scriptgate.engine.lwjgl.text.FontSelectable;
+import net.scriptgate.engine.lwjgl.text.Fonts;
+import net.scriptgate.engine.lwjgl.text.TextRenderer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps a readable log of every call, measuring text as 6 by 10 pixels per character, times the font handle plus one.
+ */
+class RecordingRenderer implements Renderer, Transformable, FontSelectable, TextRenderer {
+
+    final List<String> calls = new ArrayList<>();
+    private int font = Fonts.DEFAULT;
+
+    @Override
+    public void drawImage(int x, int y, String path) {
+        calls.add("drawImage " + x + " " + y + " " + path);
+    }
+
+    @Override
+    public void drawImage(String imagePath, Point position, Point offset, Point size) {
+        calls.add("drawImage " + imagePath + " " + position.x + " " + position.y + " " + offset.x + " " + offset.y + " " + size.x + " " + size.y);
+    }
+
+    @Override
+    public void drawRect(int x, int y, int width, int height) {
+        calls.add("drawRect " + x + " " + y + " " + width + " " + height);
+    }
+
+    @Override
+    public Rectangle drawText(int x, int y, String text) {
+        calls.add("drawText " + x + " " + y + " " + text);
+        return getBounds(x, y, text);
+    }
+
+    @Override
+    public void drawText(int x, int y, CharSequence text, Rectangle bounds) {
+        calls.add("drawText " + x + " " + y + " " + text);
+        getBounds(x, y, text, bounds);
+    }
+
+    @Override
+    public void fillCircle(int x, int y, int radius) {
+        calls.add("fillCircle " + x + " " + y + " " + radius);
+    }
+
+    @Override
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        calls.add("drawLine " + x1 + " " + y1 + " " + x2 + " " + y2);
+    }
+
+    @Override
+    public void drawCircle(int x, int y, int radius) {
+        calls.add("drawCircle " + x + " " + y + " " + radius);
+    }
+
+    @Override
+    public void fillRect(int x, int y, int width, int height) {
+        calls.add("fillRect " + x + " " + y + " " + width + " " + height);
+    }
+
+    @Override
+    public Rectangle getBounds(int x, int y, String text) {
+        return getBounds(font, x, y, text);
+    }
+
+    @Override
+    public Rectangle getBounds(int font, int x, int y, String text) {
+        int scale = font + 1;
+        return new Rectangle(x, y - 9 * scale, text.length() * 6 * scale, 10 * scale);
+    }
+
+    @Override
+    public void getBounds(int x, int y, CharSequence text, Rectangle bounds) {
+        getBounds(font, x, y, text, bounds);
+    }
+
+    @Override
+    public void getBounds(int font, int x, int y, CharSequence text, Rectangle bounds) {
+        int scale = font + 1;
+        bounds.x = x;
+        bounds.y = y - 9 * scale;
+        bounds.width = text.length() * 6 * scale;
+        bounds.height = 10 * scale;
+    }
+
+    @Override
+    public void setFont(int font) {
+        calls.add("setFont " + font);
+        this.font = font;
+    }
+
+    @Override
+    public int getFont() {
+        return font;
+    }
+
+    @Override
+    public void setColor(float r, float g, float b) {
+        calls.add("setColor " + r + " " + g + " " + b);
+    }
+
+    @Override
+    public void setColor(float a, float r, float g, float b) {
+        calls.add("setColor " + a + " " + r + " " + g + " " + b);
+    }
+
+    @Override
+    public void setOpacity(float a) {
+        calls.add("setOpacity " + a);
+    }
+
+    @Override
+    public void translate(int x, int y) {
+        calls.add("translate " + x + " " + y);
+    }
+
+    @Override
+    public void pushTransform() {
+        calls.add("pushTransform");
+    }
+
+    @Override
+    public void popTransform() {
+        calls.add("popTransform");
+    }
+
+    @Override
+    public void scale(float x, float y) {
+        calls.add("scale " + x + " " + y);
+    }
+
+    @Override
+    public void rotate(float radians) {
+        calls.add("rotate " + radians);
+    }
+}
@@ -0,0 +1,53 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircleTessellatorTest {
+
+    private final CircleTessellator tessellator = new CircleTessellator(0.25f);
+
+    @Test
+    public void smallCirclesUseFewerSegmentsThanLargeCircles() {
+        assertEquals(8, tessellator.getSegments(1));
+        assertTrue(tessellator.getSegments(3) < tessellator.getSegments(30));
+        assertTrue(tessellator.getSegments(30) < tessellator.getSegments(300));
+        assertEquals(360, tessellator.getSegments(100000));
+    }
+
+    @Test
+    public void segmentsStayWithinTolerance() {
+        for (int radius = 1; radius < 2000; radius++) {
+            int segments = tessellator.getSegments(radius);
+            double sagitta = radius * (1 - Math.cos(Math.PI / segments));
+            assertTrue("radius " + radius, segments == 360 || sagitta <= 0.25 + 1e-6);
+        }
+    }
+
+    @Test
+    public void pointsLieOnTheCircle() {
+        float[] points = tessellator.tessellate(50);
+
+        assertEquals(tessellator.getSegments(50) * 2, points.length);
+        for (int i = 0; i < points.length; i += 2) {
+            assertEquals(50, Math.hypot(points[i], points[i + 1]), 1e-3);
+        }
+    }
+
+    @Test
+    public void recurringRadiiAreCached() {
+        assertSame(tessellator.tessellate(12), tessellator.tessellate(12));
+        assertNotSame(tessellator.tessellate(5000), tessellator.tessellate(5000));
+    }
+
+    @Test
+    public void scaledCirclesGetTheSegmentsOfTheirRadiusOnScreen() {
+        float[] points = tessellator.tessellate(10, 8);
+
+        assertEquals(tessellator.getSegments(80) * 2, points.length);
+        assertEquals(10, Math.hypot(points[0], points[1]), 1e-3);
+        assertSame(points, tessellator.tessellate(10, 8));
+        assertEquals(tessellator.getSegments(10) * 2, tessellator.tessellate(10).length);
+    }
+}
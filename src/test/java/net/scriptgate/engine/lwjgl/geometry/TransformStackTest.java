@@ -0,0 +1,74 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TransformStackTest {
+
+    private static final float DELTA = 1e-4f;
+
+    private final TransformStack transform = new TransformStack();
+
+    @Test
+    public void transformsApplyInTheOrderTheyAreCalled() {
+        transform.translate(10, 20);
+        transform.scale(2, 3);
+
+        assertEquals(12, transform.transformX(1, 1), DELTA);
+        assertEquals(23, transform.transformY(1, 1), DELTA);
+    }
+
+    @Test
+    public void rotationIsClockwiseOnScreen() {
+        transform.rotate((float) (Math.PI / 2));
+
+        assertEquals(0, transform.transformX(1, 0), DELTA);
+        assertEquals(1, transform.transformY(1, 0), DELTA);
+        assertFalse(transform.isAxisAligned());
+    }
+
+    @Test
+    public void popRestoresThePushedTransform() {
+        transform.translate(5, 5);
+        transform.push();
+        transform.rotate(1);
+        transform.scale(4, 4);
+        transform.pop();
+
+        assertTrue(transform.isAxisAligned());
+        assertEquals(6, transform.transformX(1, 1), DELTA);
+        assertEquals(6, transform.transformY(1, 1), DELTA);
+        assertEquals(0, transform.getDepth());
+    }
+
+    @Test
+    public void stackGrows() {
+        for (int i = 0; i < 100; i++) {
+            transform.push();
+            transform.translate(1, 0);
+        }
+        for (int i = 0; i < 100; i++) {
+            transform.pop();
+        }
+        assertEquals(0, transform.getTranslateX(), DELTA);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void popWithoutPushFails() {
+        transform.pop();
+    }
+
+    @Test
+    public void maxScaleIsTheLargestStretchInAnyDirection() {
+        assertEquals(1, transform.getMaxScale(), DELTA);
+
+        transform.scale(2, 3);
+        transform.rotate(0.7f);
+        transform.translate(100, 50);
+
+        assertEquals(3, transform.getMaxScale(), DELTA);
+    }
+}
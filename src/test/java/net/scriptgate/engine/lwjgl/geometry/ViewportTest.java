@@ -0,0 +1,67 @@
+package net.scriptgate.engine.lwjgl.geometry;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ViewportTest {
+
+    private Viewport viewport;
+
+    @Before
+    public void setUp() {
+        viewport = new Viewport();
+        viewport.setSize(512, 512);
+    }
+
+    @Test
+    public void boundsOverlappingTheVisibleAreaAreDrawn() {
+        assertTrue(viewport.isVisible(10, 10, 20, 20));
+        assertTrue(viewport.isVisible(-10, -10, 5, 5));
+        assertTrue(viewport.isVisible(500, 500, 600, 600));
+    }
+
+    @Test
+    public void boundsOutsideTheVisibleAreaAreCulled() {
+        assertFalse(viewport.isVisible(-20, 10, -10, 20));
+        assertFalse(viewport.isVisible(10, 600, 20, 700));
+        assertEquals(2, viewport.getCulledCount());
+        assertEquals(0, viewport.getDrawnCount());
+    }
+
+    @Test
+    public void translationMovesTheBounds() {
+        viewport.translate(-1000, 0);
+        assertFalse(viewport.isVisible(10, 10, 20, 20));
+        assertTrue(viewport.isVisible(1010, 10, 1020, 20));
+
+        viewport.translate(1000, 0);
+        assertTrue(viewport.isVisible(10, 10, 20, 20));
+    }
+
+    @Test
+    public void rotatedBoundsAreCulledByTheirCorners() {
+        viewport.getTransform().rotate((float) (Math.PI / 4));
+        //the corners passed in end up left of the visible area, the other two do not
+        assertTrue(viewport.isVisible(-35, 35, 64, 134));
+        assertFalse(viewport.isVisible(-40, -40, -20, -20));
+    }
+
+    @Test
+    public void linesInAnyDirectionAreDrawn() {
+        assertTrue(viewport.isVisible(300, 10, -100, 20));
+        assertTrue(viewport.isVisible(10, 300, 20, -100));
+    }
+
+    @Test
+    public void countersCanBeReset() {
+        viewport.isVisible(10, 10, 20, 20);
+        viewport.isVisible(-20, 10, -10, 20);
+        viewport.resetCounters();
+        assertEquals(0, viewport.getDrawnCount());
+        assertEquals(0, viewport.getCulledCount());
+    }
+}
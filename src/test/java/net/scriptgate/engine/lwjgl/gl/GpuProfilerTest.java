@@ -0,0 +1,79 @@
+package net.scriptgate.engine.lwjgl.gl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Without a context the profiler is never initialized and only measures the CPU, which is what is tested here.
+ */
+public class GpuProfilerTest {
+
+    private final GpuProfiler profiler = new GpuProfiler();
+
+    @Test
+    public void resultsAreReportedOnceTheFrameLeavesTheRing() throws InterruptedException {
+        int scope = profiler.register("render");
+
+        profiler.begin(scope);
+        Thread.sleep(5);
+        profiler.end(scope);
+        profiler.endFrame();
+        assertEquals(0, profiler.getCpuMillis(scope), 0);
+
+        for (int i = 0; i < 3; i++) {
+            profiler.endFrame();
+        }
+        assertTrue(profiler.getCpuMillis(scope) >= 5);
+        assertEquals(0, profiler.getGpuMillis(scope), 0);
+        assertFalse(profiler.isSupported());
+    }
+
+    @Test
+    public void enteringAScopeSeveralTimesSumsItsTime() throws InterruptedException {
+        int scope = profiler.register("sprites");
+        for (int i = 0; i < 3; i++) {
+            profiler.begin(scope);
+            Thread.sleep(2);
+            profiler.end(scope);
+        }
+        for (int i = 0; i < 4; i++) {
+            profiler.endFrame();
+        }
+        assertTrue(profiler.getCpuMillis(scope) >= 6);
+    }
+
+    @Test
+    public void scopesCanBeNested() {
+        int frame = profiler.register("frame");
+        int render = profiler.register("render");
+        profiler.begin(frame);
+        profiler.begin(render);
+        profiler.end(render);
+        profiler.end(frame);
+        profiler.endFrame();
+
+        assertEquals(2, profiler.getScopeCount());
+        assertEquals("render", profiler.getName(render));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void scopeCannotBeginTwice() {
+        int scope = profiler.register("render");
+        profiler.begin(scope);
+        profiler.begin(scope);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void scopeCannotEndBeforeItBegins() {
+        profiler.end(profiler.register("render"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void frameCannotEndWhileAScopeIsOpen() {
+        profiler.begin(profiler.register("render"));
+        profiler.endFrame();
+    }
+}